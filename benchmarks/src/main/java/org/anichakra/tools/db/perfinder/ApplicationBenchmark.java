@@ -0,0 +1,87 @@
+package org.anichakra.tools.db.perfinder;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.anichakra.tools.db.perfinder.rdbms.BenchmarkDatabase;
+import org.anichakra.tools.db.perfinder.rdbms.ColumnarResult;
+import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.TableRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The rendering of a fetched result as a table, both into a string and
+ * streamed while the rows are fetched, which is what the dry run does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationBenchmark {
+    private static final Writer DISCARDING = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Param({ "100", "10000" })
+    public int rows;
+
+    @Param({ "int+bigint+double+decimal+varchar+timestamp" })
+    public String columnTypes;
+
+    private BenchmarkDatabase database;
+    private RdbmsPerfinder rdbmsPf;
+    private ColumnarResult result;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("table", rows, columnTypes);
+        rdbmsPf = new RdbmsPerfinder();
+        rdbmsPf.loadDriver(BenchmarkDatabase.DRIVER, null);
+        rdbmsPf.createConnection(database.getUrl(), null, null);
+        rdbmsPf.prepareStatement(BenchmarkDatabase.QUERY, null, null);
+        result = new ColumnarResult();
+        rdbmsPf.executeQuery();
+        rdbmsPf.fetchResult(0, result);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        rdbmsPf.close();
+        database.close();
+    }
+
+    @Benchmark
+    public String getFormattedDataTable() {
+        return Application.getFormattedDataTable(result);
+    }
+
+    @Benchmark
+    public long fetchIntoTable() {
+        rdbmsPf.executeQuery();
+        return rdbmsPf.fetchResult(0, new TableRenderer(DISCARDING, Long.MAX_VALUE, 100));
+    }
+}
@@ -0,0 +1,120 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+
+/**
+ * An in-memory H2 database with a table of the given number of rows and
+ * column types, seeded from a fixed random seed so every run reads the same
+ * data. The types are a list of int, bigint, double, decimal, varchar,
+ * timestamp, clob and blob joined with +, as JMH splits parameters at commas.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+    public static final String DRIVER = "org.h2.Driver";
+    public static final String QUERY = "select * from bench";
+    private static final long SEED = 42;
+    private static final int BATCH_SIZE = 1000;
+
+    private final String url;
+    private final Connection keepAlive;
+
+    public BenchmarkDatabase(String name, int rows, String columnTypes) throws SQLException {
+        url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+        keepAlive = DriverManager.getConnection(url);
+        String[] types = columnTypes.split("\\+");
+        StringBuilder create = new StringBuilder("create table bench (");
+        StringBuilder insert = new StringBuilder("insert into bench values (");
+        for (int i = 0; i < types.length; i++) {
+            create.append(i > 0 ? ", " : "").append("c").append(i + 1).append(' ').append(sqlType(types[i].trim()));
+            insert.append(i > 0 ? ", ?" : "?");
+        }
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("drop table if exists bench");
+            statement.execute(create.append(')').toString());
+        }
+        Random random = new Random(SEED);
+        try (PreparedStatement statement = keepAlive.prepareStatement(insert.append(')').toString())) {
+            for (int row = 1; row <= rows; row++) {
+                for (int i = 0; i < types.length; i++) {
+                    statement.setObject(i + 1, value(types[i].trim(), row, random));
+                }
+                statement.addBatch();
+                if (row % BATCH_SIZE == 0 || row == rows)
+                    statement.executeBatch();
+            }
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    private static String sqlType(String type) {
+        switch (type) {
+        case "int":
+            return "int";
+        case "bigint":
+            return "bigint";
+        case "double":
+            return "double precision";
+        case "decimal":
+            return "decimal(18, 4)";
+        case "varchar":
+            return "varchar(200)";
+        case "timestamp":
+            return "timestamp";
+        case "clob":
+            return "clob";
+        case "blob":
+            return "blob";
+        default:
+            throw new IllegalArgumentException("Unknown column type: " + type);
+        }
+    }
+
+    private static Object value(String type, int row, Random random) {
+        switch (type) {
+        case "int":
+            return row;
+        case "bigint":
+            return random.nextLong();
+        case "double":
+            return random.nextDouble() * 1e6;
+        case "decimal":
+            return BigDecimal.valueOf(random.nextInt(Integer.MAX_VALUE), 4);
+        case "varchar":
+            return text(random, 10 + random.nextInt(90));
+        case "timestamp":
+            return new Timestamp(1500000000000L + row * 1000L);
+        case "clob":
+            return text(random, 2000);
+        default:
+            byte[] bytes = new byte[2000];
+            random.nextBytes(bytes);
+            return bytes;
+        }
+    }
+
+    private static String text(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("shutdown");
+        } finally {
+            keepAlive.close();
+        }
+    }
+}
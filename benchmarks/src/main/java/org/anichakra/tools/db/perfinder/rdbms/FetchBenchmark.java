@@ -0,0 +1,94 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The execution and fetch of a whole result through RdbmsPerfinder with each
+ * fetch mode, and the row mapping of the materialize mode on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FetchBenchmark {
+
+    @Param({ "100", "10000" })
+    public int rows;
+
+    @Param({ "int+bigint+double+decimal+varchar+timestamp", "varchar+varchar+varchar", "int+clob+blob" })
+    public String columnTypes;
+
+    @Param({ "materialize", "columnar", "stream", "profile" })
+    public String fetchMode;
+
+    private BenchmarkDatabase database;
+    private RdbmsPerfinder rdbmsPf;
+    private RowConsumer consumer;
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("fetch", rows, columnTypes);
+        FetchMode mode = FetchMode.of(fetchMode);
+        rdbmsPf = new RdbmsPerfinder();
+        rdbmsPf.loadDriver(BenchmarkDatabase.DRIVER, null);
+        rdbmsPf.createConnection(database.getUrl(), null, null);
+        rdbmsPf.setForwardOnly(mode.isForwardOnly());
+        rdbmsPf.prepareStatement(BenchmarkDatabase.QUERY, null, null);
+        consumer = mode.newConsumer();
+        connection = DriverManager.getConnection(database.getUrl());
+        statement = connection.prepareStatement(BenchmarkDatabase.QUERY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        statement.close();
+        connection.close();
+        rdbmsPf.close();
+        database.close();
+    }
+
+    // the fixed-memory histograms of the phases would otherwise be the same for every invocation
+    @TearDown(Level.Iteration)
+    public void resetMetrics() {
+        rdbmsPf.getMetrics().reset();
+    }
+
+    @Benchmark
+    public long executeAndFetch() {
+        rdbmsPf.executeQuery();
+        return rdbmsPf.fetchResult(0, consumer);
+    }
+
+    @Benchmark
+    public void mapRow(Blackhole blackhole) throws Exception {
+        try (ResultSet rs = statement.executeQuery()) {
+            String[] columns = RdbmsPerfinder.getColumns(rs.getMetaData());
+            while (rs.next()) {
+                blackhole.consume(RdbmsPerfinder.mapRow(rs, columns));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The binding of a parameter tuple, which is reported as the bind phase and
+ * happens before the timed window of a test run and of the service time of a
+ * load test execution. In an open-loop load test it still counts toward the
+ * response time measured from the intended start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterBenchmark {
+
+    @Param({ "int+long+string", "decimal+date+timestamp" })
+    public String parameterTypes;
+
+    private BenchmarkDatabase database;
+    private Connection connection;
+    private PreparedStatement statement;
+    private ParameterBinder binder;
+    private String[] values;
+    private ParameterSource sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("parameters", 0, "int");
+        connection = DriverManager.getConnection(database.getUrl());
+        statement = connection.prepareStatement("select ?, ?, ?");
+        String[] types = parameterTypes.split("\\+");
+        binder = ParameterBinder.compile(types);
+        values = types[0].equals("int") ? new String[] { "42", "1234567890123", "ACURA" }
+                : new String[] { "12345.6789", "2020-01-31", "2020-01-31 12:34:56.789" };
+        sequence = ParameterSource.sequence(new String[] { "{n}", "name-{n}" });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        statement.close();
+        connection.close();
+        database.close();
+    }
+
+    @Benchmark
+    public PreparedStatement bind() throws Exception {
+        binder.bind(statement, values);
+        return statement;
+    }
+
+    @Benchmark
+    public String[] sequence() {
+        return sequence.next();
+    }
+}
@@ -0,0 +1,89 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The recording of a sample, which is inside every timed window, and the
+ * summaries and comparisons made when reporting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+    private static final int SAMPLES = 100000;
+
+    private final long[] values = new long[1024];
+    private final Histogram recorded = new Histogram();
+    private final Histogram baseline = new Histogram();
+    private final Histogram sample = new Histogram();
+    private final Metrics metrics = new Metrics();
+    private String encoded;
+    private int next;
+
+    // log-normal times around 1 ms, as typical of query times
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (1e6 * Math.exp(random.nextGaussian() * 0.5));
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            baseline.record((long) (1e6 * Math.exp(random.nextGaussian() * 0.5)));
+            sample.record((long) (1.05e6 * Math.exp(random.nextGaussian() * 0.5)));
+        }
+        encoded = sample.encode();
+    }
+
+    @Benchmark
+    public Histogram record() {
+        recorded.record(values[next++ & (values.length - 1)]);
+        return recorded;
+    }
+
+    @Benchmark
+    public Metrics recordPhase() {
+        metrics.record(Metrics.Phase.FETCH, values[next++ & (values.length - 1)]);
+        return metrics;
+    }
+
+    @Benchmark
+    public long percentile() {
+        return sample.getValueAtPercentile(99);
+    }
+
+    @Benchmark
+    public String summary() {
+        return sample.summary();
+    }
+
+    @Benchmark
+    public Histogram merge() {
+        return new Histogram().merge(sample);
+    }
+
+    @Benchmark
+    public Histogram decode() {
+        return Histogram.decode(encoded);
+    }
+
+    @Benchmark
+    public double mannWhitney() {
+        return new MannWhitney(sample, baseline).getPValue();
+    }
+}
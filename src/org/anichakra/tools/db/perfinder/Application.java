@@ -3,79 +3,94 @@ package org.anichakra.tools.db.perfinder;
 import java.io.Console;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.math.BigDecimal;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.DoubleSummaryStatistics;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Formatter;
+import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
-import java.util.stream.Collector;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.anichakra.tools.db.perfinder.batch.BatchRunner;
+import org.anichakra.tools.db.perfinder.load.LoadRunner;
+import org.anichakra.tools.db.perfinder.load.Scenario;
+import org.anichakra.tools.db.perfinder.pipeline.PipelineRunner;
+import org.anichakra.tools.db.perfinder.rdbms.ColumnProfiler;
+import org.anichakra.tools.db.perfinder.rdbms.ColumnarResult;
+import org.anichakra.tools.db.perfinder.rdbms.CsvParameterSource;
+import org.anichakra.tools.db.perfinder.rdbms.FetchMode;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterBinder;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
 import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.RowConsumer;
+import org.anichakra.tools.db.perfinder.rdbms.TableRenderer;
+import org.anichakra.tools.db.perfinder.results.Comparison;
+import org.anichakra.tools.db.perfinder.results.ResultStore;
+import org.anichakra.tools.db.perfinder.results.StoredRun;
+import org.anichakra.tools.db.perfinder.stats.ClientUsage;
+import org.anichakra.tools.db.perfinder.stats.Convergence;
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+import org.anichakra.tools.db.perfinder.stats.Metrics.Phase;
+import org.anichakra.tools.db.perfinder.sweep.SweepRunner;
+import org.anichakra.tools.db.perfinder.target.TargetRunner;
 
 public class Application {
-    final static class DoubleStatistics extends DoubleSummaryStatistics {
-
-        public static Collector<Double, ?, DoubleStatistics> collector() {
-            return Collector.of(DoubleStatistics::new, DoubleStatistics::accept, DoubleStatistics::combine);
-        }
-        private double sumOfSquare = 0.0d;
-        private double sumOfSquareCompensation;
-
-        private double simpleSumOfSquare;
-
-        @Override
-        public void accept(double value) {
-            super.accept(value);
-            double squareValue = value * value;
-            simpleSumOfSquare += squareValue;
-            sumOfSquareWithCompensation(squareValue);
-        }
-
-        public DoubleStatistics combine(DoubleStatistics other) {
-            super.combine(other);
-            simpleSumOfSquare += other.simpleSumOfSquare;
-            sumOfSquareWithCompensation(other.sumOfSquare);
-            sumOfSquareWithCompensation(other.sumOfSquareCompensation);
-            return this;
-        }
-
-        public final double getStandardDeviation() {
-            long count = getCount();
-            double sumOfSquare = getSumOfSquare();
-            double average = getAverage();
-            return count > 0 ? Math.sqrt((sumOfSquare - count * Math.pow(average, 2)) / (count - 1)) : 0.0d;
-        }
-
-        public double getSumOfSquare() {
-            double tmp = sumOfSquare + sumOfSquareCompensation;
-            if (Double.isNaN(tmp) && Double.isInfinite(simpleSumOfSquare)) {
-                return simpleSumOfSquare;
-            }
-            return tmp;
-        }
-
-        private void sumOfSquareWithCompensation(double value) {
-            double tmp = value - sumOfSquareCompensation;
-            double velvel = sumOfSquare + tmp;
-            sumOfSquareCompensation = (velvel - sumOfSquare) - tmp;
-            sumOfSquare = velvel;
-        }
-
-    }
+    private static final String JDBC_PIPELINE = "jdbc.pipeline";
+    private static final String JDBC_DECODE_THREADS = "jdbc.decodeThreads";
+    private static final String JDBC_QUEUE_CAPACITY = "jdbc.queueCapacity";
+    private static final String JDBC_TARGETS = "jdbc.targets";
+    private static final String JDBC_TARGET_MODE = "jdbc.targetMode";
+    private static final String JDBC_RESULT_DIR = "jdbc.resultDir";
+    private static final String JDBC_RESULT_LABEL = "jdbc.resultLabel";
+    private static final String JDBC_BASELINE = "jdbc.baseline";
+    private static final String JDBC_REGRESSION_THRESHOLD = "jdbc.regressionThreshold";
+    private static final String JDBC_TARGET_ERROR = "jdbc.targetError";
+    private static final String JDBC_TIME_BUDGET = "jdbc.timeBudget";
+    private static final String JDBC_REPORT_FILE = "jdbc.reportFile";
+    private static final String JDBC_REPORT_INTERVAL = "jdbc.reportInterval";
+    private static final String JDBC_COMMIT_INTERVAL = "jdbc.commitInterval";
+    private static final String JDBC_AUTO_COMMIT = "jdbc.autoCommit";
+    private static final String JDBC_BATCH_ROWS = "jdbc.batchRows";
+    private static final String JDBC_BATCH_SIZE = "jdbc.batchSize";
+    private static final String JDBC_SCENARIO_FILE = "jdbc.scenarioFile";
+    private static final String JDBC_OUTPUT_WIDTH = "jdbc.outputWidth";
+    private static final String JDBC_OUTPUT_ROWS = "jdbc.outputRows";
+    private static final String JDBC_OUTPUT_FILE = "jdbc.outputFile";
+    private static final String JDBC_SWEEP_MAX_ROWS = "jdbc.sweepMaxRows";
+    private static final String JDBC_SWEEP_FETCH_SIZES = "jdbc.sweepFetchSizes";
+    private static final String JDBC_REPREPARE = "jdbc.reprepare";
+    private static final String JDBC_THINK_TIME = "jdbc.thinkTime";
+    private static final String JDBC_MAX_CONNECTIONS = "jdbc.maxConnections";
+    private static final String JDBC_CONNECTION_LIFECYCLE = "jdbc.connectionLifecycle";
+    private static final String JDBC_EXECUTOR = "jdbc.executor";
+    private static final String JDBC_TARGET_RATE = "jdbc.targetRate";
+    private static final String JDBC_PARAMETER_ORDER = "jdbc.parameterOrder";
+    private static final String JDBC_PARAMETER_TYPES = "jdbc.parameterTypes";
+    private static final String JDBC_PARAMETER_FILE = "jdbc.parameterFile";
+    private static final String JDBC_SAMPLE_ROWS = "jdbc.sampleRows";
+    private static final String JDBC_FETCH_MODE = "jdbc.fetchMode";
+    private static final String JDBC_DURATION = "jdbc.duration";
+    private static final String JDBC_CONCURRENCY = "jdbc.concurrency";
     private static final String JDBC_QUERY_RUN = "jdbc.queryRun";
     private static final String LINE_SEPARATOR = System.lineSeparator();
     private static final String JDBC_JAR_PATH = "jdbc.jarPath";
@@ -90,49 +105,31 @@ public class Application {
     private static final String JDBC_URL = "jdbc.url";
     private static final String JDBC_DRIVER = "jdbc.driver";
     private final static int MIN_EXECUTION_COUNT = 3;
-    private final static int MAX_EXECUTION_COUNT = 10;
+    private final static int DEFAULT_DURATION = 10;
+    private final static double DEFAULT_TARGET_ERROR = 5;
+    private final static int DEFAULT_TIME_BUDGET = 60;
+    private final static double DEFAULT_REGRESSION_THRESHOLD = 10;
+    private final static int REGRESSION_EXIT_CODE = 1;
+    private final static int ERROR_EXIT_CODE = 2;
+    private final static int DEFAULT_SAMPLE_ROWS = 100;
+    private final static int DEFAULT_OUTPUT_WIDTH = 100;
+    private final static int DEFAULT_BATCH_ROWS = 10000;
+    private final static String PARAMETER_ORDER_RANDOM = "random";
+    private final static String EXECUTOR_VIRTUAL = "virtual";
+    private final static String CONNECTION_LIFECYCLE_EXECUTION = "execution";
+    private final static String QUERY_STATEMENT = "query";
+    private final static String QUERY_RUN_AUTO = "auto";
+    private final static String TARGET_MODE_PARALLEL = "parallel";
+    private final static String SCENARIO_WEIGHT = ".weight";
 
     private final static Logger LOGGER = Logger.getLogger("db-perfinder");
 
-    static String getFormattedDataTable(List<Map<String, Object>> result) {
-        if (result == null || result.isEmpty())
+    static String getFormattedDataTable(ColumnarResult result) {
+        if (result == null || result.getRowCount() == 0)
             return "";
-        Map<String, Integer> headerLengths = new LinkedHashMap<>();
-        Map<String, Boolean> headerTypes = new LinkedHashMap<>();
-        result.parallelStream().findFirst()
-                .ifPresent(p -> p.entrySet().forEach(e -> headerLengths.put(e.getKey(), e.getKey().length())));
-        result.parallelStream().findFirst()
-                .ifPresent(p -> p.entrySet().forEach(e -> headerTypes.put(e.getKey(), e.getValue() instanceof Number)));
-
-        result.parallelStream()
-                .forEach(p -> p.entrySet().stream().filter(e -> e.getValue() != null)
-                        .filter(e -> e.getValue().toString().length() > headerLengths.get(e.getKey()))
-                        .forEach(e -> headerLengths.put(e.getKey(), e.getValue().toString().length())));
-
-        StringBuilder format = new StringBuilder();
-        int[] counter = { 1 };
-        headerLengths.entrySet().forEach(entry -> {
-            format.append("|%" + (counter[0]++) + "$" + (headerTypes.get(entry.getKey()) ? "" : "-") + entry.getValue()
-                    + "s");
-        });
-
-        format.append("|").append(LINE_SEPARATOR);
-        String formatRows = format.toString();
-        StringBuilder horizontalLines = new StringBuilder();
-        IntStream.range(0, headerLengths.values().parallelStream().reduce(0, Integer::sum) + headerLengths.size())
-                .parallel().forEach(i -> {
-                    horizontalLines.append("-");
-                });
-        horizontalLines.append("-").append(LINE_SEPARATOR);
-
-        StringBuilder rows = new StringBuilder();
-        rows.append(horizontalLines);
-        rows.append(String.format(formatRows, headerLengths.keySet().toArray(new Object[] {})));
-        rows.append(horizontalLines);
-        result.stream().forEach(p -> rows.append(String.format(formatRows, p.values().toArray(new Object[] {}))));
-        rows.append(horizontalLines);
-
-        return rows.toString();
+        StringWriter table = new StringWriter();
+        new TableRenderer(table, Long.MAX_VALUE, Integer.MAX_VALUE).render(result);
+        return table.toString();
     }
 
     private static Integer getIntegerValue(String property) {
@@ -141,6 +138,96 @@ public class Application {
         return Integer.valueOf(property.trim());
     }
 
+    // accepts a number of executions per second, optionally suffixed with /s, /m or /h
+    private static Double getRateValue(String property) {
+        if (property == null || property.trim().length() == 0)
+            return null;
+        String[] tokens = property.trim().split("/");
+        double rate = Double.parseDouble(tokens[0].trim());
+        if (tokens.length > 1) {
+            switch (tokens[1].trim().toLowerCase()) {
+            case "s":
+                break;
+            case "m":
+                rate /= 60;
+                break;
+            case "h":
+                rate /= 3600;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown unit in jdbc.targetRate: " + property);
+            }
+        }
+        if (rate <= 0)
+            throw new IllegalArgumentException("jdbc.targetRate should be positive!");
+        return rate;
+    }
+
+    // reads a statement from the jdbc.* properties, looked up under other keys in a scenario
+    private static Scenario.Statement getStatement(String name, double weight, Properties properties,
+            UnaryOperator<String> keys) throws IOException {
+        String query = properties.getProperty(keys.apply(JDBC_QUERY));
+        if (query == null || query.trim().length() == 0) {
+            String p = properties.getProperty(keys.apply(JDBC_QUERY_FILE));
+            if (p == null)
+                throw new FileNotFoundException(
+                        keys.apply(JDBC_QUERY) + " or " + keys.apply(JDBC_QUERY_FILE) + " not found!");
+            Path path = Paths.get(p);
+            StringBuilder data = new StringBuilder();
+            try (Stream<String> lines = Files.lines(path);) {
+                lines.forEach(line -> data.append(line).append(LINE_SEPARATOR));
+                query = data.toString();
+            }
+        }
+        Scenario.Statement statement = new Scenario.Statement(name, query, weight);
+        statement.setParameters(Optional.ofNullable(properties.getProperty(keys.apply(JDBC_PARAMETERS)))
+                .map(s -> s.split(",")).orElse(null));
+        String parameterFile = properties.getProperty(keys.apply(JDBC_PARAMETER_FILE));
+        if (parameterFile != null && parameterFile.trim().length() > 0) {
+            Path parameterPath = Paths.get(parameterFile.trim());
+            boolean randomOrder = PARAMETER_ORDER_RANDOM
+                    .equalsIgnoreCase(properties.getProperty(keys.apply(JDBC_PARAMETER_ORDER), "").trim());
+            Supplier<ParameterSource> parameterSources = () -> new CsvParameterSource(parameterPath, randomOrder);
+            String types = properties.getProperty(keys.apply(JDBC_PARAMETER_TYPES));
+            ParameterBinder binder;
+            if (types == null || types.trim().length() == 0) {
+                try (ParameterSource source = parameterSources.get()) {
+                    binder = ParameterBinder.compile(new String[source.next().length]);
+                }
+            } else {
+                binder = ParameterBinder.compile(types.split(","));
+            }
+            statement.setParameterSource(parameterSources, binder);
+            statement.setParameters(null);
+        }
+        statement.setFetchSize(getIntegerValue(properties.getProperty(keys.apply(JDBC_FETCH_SIZE))));
+        statement.setRowIndex(getIntegerValue(properties.getProperty(keys.apply(JDBC_ROW_INDEX))));
+        statement.setMaxRows(getIntegerValue(properties.getProperty(keys.apply(JDBC_MAX_ROWS))));
+        statement.setThinkTime(Optional.ofNullable(getIntegerValue(properties.getProperty(keys.apply(JDBC_THINK_TIME))))
+                .map(Integer::longValue).orElse(null));
+        return statement;
+    }
+
+    // a scenario file has the keys of a statement, e.g. name.query or name.fetchSize, for each named statement
+    private static Scenario getScenario(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        Set<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.lastIndexOf('.') > 0)
+                names.add(key.substring(0, key.lastIndexOf('.')));
+        }
+        List<Scenario.Statement> statements = new ArrayList<>();
+        for (String name : names) {
+            double weight = Double.parseDouble(properties.getProperty(name + SCENARIO_WEIGHT, "1").trim());
+            statements.add(getStatement(name, weight, properties,
+                    key -> name + key.substring(key.indexOf('.'))));
+        }
+        return new Scenario(statements);
+    }
+
     private static String getPasswordFromCommand() {
         Console console = System.console();
         if (console == null) {
@@ -151,6 +238,7 @@ public class Application {
     }
 
     public static void main(String[] argv) {
+        boolean regression = false;
         try {
 
             String propertiesFile = System.getProperty("jdbc.properties");
@@ -189,29 +277,130 @@ public class Application {
             if ((username != null && username.length() > 0) && (password == null || password.length() == 0)) {
                 password = getPasswordFromCommand();
             }
-            String query = jdbcProperties.getProperty(JDBC_QUERY);
-            if (query == null || query.trim().length() == 0) {
-                String p = jdbcProperties.getProperty(JDBC_QUERY_FILE);
-                if (p == null)
-                    throw new FileNotFoundException("jdbc.query or jdbc.queryFile not found!");
-                Path path = Paths.get(p);
-                StringBuilder data = new StringBuilder();
-                try (Stream<String> lines = Files.lines(path);) {
-                    lines.forEach(line -> data.append(line).append(LINE_SEPARATOR));
-                    query = data.toString();
-                }
+            String scenarioFile = jdbcProperties.getProperty(JDBC_SCENARIO_FILE, "").trim();
+            Scenario.Statement statement = scenarioFile.length() > 0 ? null
+                    : getStatement(QUERY_STATEMENT, 1, jdbcProperties, UnaryOperator.identity());
+            Scenario scenario = statement == null ? getScenario(Paths.get(scenarioFile))
+                    : new Scenario(Collections.singletonList(statement));
+
+            boolean adaptive = QUERY_RUN_AUTO
+                    .equalsIgnoreCase(jdbcProperties.getProperty(JDBC_QUERY_RUN, "").trim());
+            Integer runCount = adaptive ? MIN_EXECUTION_COUNT
+                    : Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_QUERY_RUN)))
+                            .orElse(MIN_EXECUTION_COUNT);
+            Convergence convergence = adaptive ? new Convergence(
+                    Optional.ofNullable(jdbcProperties.getProperty(JDBC_TARGET_ERROR)).map(String::trim)
+                            .filter(error -> error.length() > 0).map(Double::valueOf).orElse(DEFAULT_TARGET_ERROR)
+                            / 100,
+                    Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_TIME_BUDGET)))
+                            .orElse(DEFAULT_TIME_BUDGET))
+                    : null;
+            Integer concurrency = getIntegerValue(jdbcProperties.getProperty(JDBC_CONCURRENCY));
+            if (concurrency == null && statement == null)
+                concurrency = 1;
+            FetchMode fetchMode = FetchMode.of(jdbcProperties.getProperty(JDBC_FETCH_MODE));
+            Integer sampleRows = Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_SAMPLE_ROWS)))
+                    .orElse(DEFAULT_SAMPLE_ROWS);
+            Double targetRate = getRateValue(jdbcProperties.getProperty(JDBC_TARGET_RATE));
+            if (targetRate != null && concurrency == null)
+                throw new IllegalArgumentException("jdbc.concurrency is needed along with jdbc.targetRate!");
+            Path outputFile = Optional.ofNullable(jdbcProperties.getProperty(JDBC_OUTPUT_FILE))
+                    .map(String::trim).filter(file -> file.length() > 0).map(Paths::get).orElse(null);
+            Integer outputRows = getIntegerValue(jdbcProperties.getProperty(JDBC_OUTPUT_ROWS));
+            Integer outputWidth = Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_OUTPUT_WIDTH)))
+                    .orElse(DEFAULT_OUTPUT_WIDTH);
+            String sweepFetchSizes = jdbcProperties.getProperty(JDBC_SWEEP_FETCH_SIZES, "").trim();
+            String sweepMaxRows = jdbcProperties.getProperty(JDBC_SWEEP_MAX_ROWS, "").trim();
+            boolean sweep = sweepFetchSizes.length() > 0 || sweepMaxRows.length() > 0;
+            if (sweep && statement == null)
+                throw new IllegalArgumentException("jdbc.scenarioFile cannot be used along with a sweep!");
+            if (sweep && concurrency != null)
+                throw new IllegalArgumentException("jdbc.concurrency cannot be used along with a sweep!");
+            if (sweep && adaptive)
+                throw new IllegalArgumentException("jdbc.queryRun=auto cannot be used along with a sweep!");
+            String batchSizes = jdbcProperties.getProperty(JDBC_BATCH_SIZE, "").trim();
+            if (batchSizes.length() > 0 && (statement == null || concurrency != null || sweep))
+                throw new IllegalArgumentException(
+                        "jdbc.batchSize cannot be used along with jdbc.scenarioFile, jdbc.concurrency or a sweep!");
+            ResultStore resultStore = Optional.ofNullable(jdbcProperties.getProperty(JDBC_RESULT_DIR))
+                    .map(String::trim).filter(dir -> dir.length() > 0).map(Paths::get).map(ResultStore::new)
+                    .orElse(null);
+            String baseline = jdbcProperties.getProperty(JDBC_BASELINE, "").trim();
+            if (baseline.length() > 0 && resultStore == null)
+                throw new IllegalArgumentException("jdbc.resultDir is needed along with jdbc.baseline!");
+            if (resultStore != null && (concurrency != null || sweep || batchSizes.length() > 0))
+                throw new IllegalArgumentException(
+                        "jdbc.resultDir cannot be used along with jdbc.concurrency, a sweep or jdbc.batchSize!");
+            double regressionThreshold = Optional.ofNullable(jdbcProperties.getProperty(JDBC_REGRESSION_THRESHOLD))
+                    .map(String::trim).filter(threshold -> threshold.length() > 0).map(Double::valueOf)
+                    .orElse(DEFAULT_REGRESSION_THRESHOLD) / 100;
+            String targetNames = jdbcProperties.getProperty(JDBC_TARGETS, "").trim();
+            if (targetNames.length() > 0 && (statement == null || concurrency != null || sweep
+                    || batchSizes.length() > 0 || adaptive || resultStore != null))
+                throw new IllegalArgumentException("jdbc.targets cannot be used along with jdbc.scenarioFile, "
+                        + "jdbc.concurrency, a sweep, jdbc.batchSize, jdbc.queryRun=auto or jdbc.resultDir!");
+            Integer pipeline = getIntegerValue(jdbcProperties.getProperty(JDBC_PIPELINE));
+            if (pipeline != null && (statement == null || concurrency != null || sweep || batchSizes.length() > 0
+                    || adaptive || resultStore != null || targetNames.length() > 0))
+                throw new IllegalArgumentException("jdbc.pipeline cannot be used along with jdbc.scenarioFile, "
+                        + "jdbc.concurrency, a sweep, jdbc.batchSize, jdbc.queryRun=auto, jdbc.resultDir or jdbc.targets!");
+            if (fetchMode == FetchMode.PROFILE && (concurrency != null || sweep || batchSizes.length() > 0
+                    || targetNames.length() > 0 || pipeline != null))
+                throw new IllegalArgumentException("jdbc.fetchMode=profile cannot be used along with "
+                        + "jdbc.scenarioFile, jdbc.concurrency, a sweep, jdbc.batchSize, jdbc.targets or jdbc.pipeline!");
+            Integer reportInterval = getIntegerValue(jdbcProperties.getProperty(JDBC_REPORT_INTERVAL));
+            if (reportInterval != null && concurrency == null)
+                throw new IllegalArgumentException("jdbc.reportInterval needs jdbc.concurrency or jdbc.scenarioFile!");
+            Integer duration = Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_DURATION)))
+                    .orElse(DEFAULT_DURATION);
+            String connectionPassword = password;
+            boolean reconnect = CONNECTION_LIFECYCLE_EXECUTION
+                    .equalsIgnoreCase(jdbcProperties.getProperty(JDBC_CONNECTION_LIFECYCLE, "").trim());
+            boolean reprepare = Boolean.parseBoolean(jdbcProperties.getProperty(JDBC_REPREPARE, "").trim());
+            LoadRunner loadRunner = null;
+            if (concurrency != null) {
+                loadRunner = new LoadRunner(
+                        workerPf -> workerPf.createConnection(connectionUrl, username, connectionPassword),
+                        concurrency, duration);
+                loadRunner.setFetchMode(fetchMode);
+                if (targetRate != null)
+                    loadRunner.setTargetRate(targetRate);
+                loadRunner.setVirtualThreads(
+                        EXECUTOR_VIRTUAL.equalsIgnoreCase(jdbcProperties.getProperty(JDBC_EXECUTOR, "").trim()));
+                loadRunner.setConnectPerExecution(reconnect,
+                        getIntegerValue(jdbcProperties.getProperty(JDBC_MAX_CONNECTIONS)));
+                loadRunner.setReprepare(reprepare);
+                loadRunner.setReportInterval(reportInterval,
+                        Optional.ofNullable(jdbcProperties.getProperty(JDBC_REPORT_FILE)).map(String::trim)
+                                .filter(file -> file.length() > 0).map(Paths::get).orElse(null));
+                Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_THINK_TIME)))
+                        .ifPresent(loadRunner::setThinkTime);
             }
 
-            Integer runCount = Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_QUERY_RUN)))
-                    .orElse(MIN_EXECUTION_COUNT);
-            runCount = runCount > MAX_EXECUTION_COUNT ? MAX_EXECUTION_COUNT : runCount;
-            String[] parameters = Optional.ofNullable(jdbcProperties.getProperty(JDBC_PARAMETERS))
-                    .map(s -> s.split(",")).orElse(null);
-            Integer fetchSize = getIntegerValue(jdbcProperties.getProperty(JDBC_FETCH_SIZE));
-            Integer rowIndex = getIntegerValue(jdbcProperties.getProperty(JDBC_ROW_INDEX));
-            Integer maxRows = getIntegerValue(jdbcProperties.getProperty(JDBC_MAX_ROWS));
+            if (targetNames.length() > 0) {
+                List<TargetRunner.Target> targets = new ArrayList<>();
+                for (String name : targetNames.split(",")) {
+                    String target = name.trim();
+                    UnaryOperator<String> property = key -> jdbcProperties.getProperty(
+                            target + key.substring(key.indexOf('.')), jdbcProperties.getProperty(key));
+                    targets.add(new TargetRunner.Target(target, property.apply(JDBC_DRIVER),
+                            property.apply(JDBC_JAR_PATH), property.apply(JDBC_URL), property.apply(JDBC_USERNAME),
+                            Optional.ofNullable(jdbcProperties.getProperty(target + ".password")).orElse(password)));
+                }
+                TargetRunner targetRunner = new TargetRunner(targets, runCount,
+                        TARGET_MODE_PARALLEL.equalsIgnoreCase(jdbcProperties.getProperty(JDBC_TARGET_MODE, "").trim()));
+                targetRunner.setFetchMode(fetchMode);
+                targetRunner.setParameterSource(statement.getParameterSources(), statement.getBinder());
+                LOGGER.info("Executing Query: " + statement.getQuery());
+                targetRunner.run(statement.getQuery(), statement.getFetchSize(), statement.getRowIndex(),
+                        statement.getMaxRows(), statement.getParameters());
+                return;
+            }
 
-            try (RdbmsPerfinder rdbmsPf = new RdbmsPerfinder();) {
+            try (RdbmsPerfinder rdbmsPf = new RdbmsPerfinder();
+                    ParameterSource parameterSource = statement == null || statement.getParameterSources() == null
+                            ? null
+                            : statement.getParameterSources().get()) {
                 LOGGER.fine(() -> "Loading JDBC Driver: " + jdbcDriverClassName);
                 rdbmsPf.loadDriver(jdbcDriverClassName, jarPath);
                 System.out.println("Creating Connection to: " + connectionUrl);
@@ -224,52 +413,167 @@ public class Application {
                         // nothing can be done
                     }
                 }));
+                if (batchSizes.length() > 0) {
+                    LOGGER.info("Executing Update: " + statement.getQuery());
+                    rdbmsPf.setForwardOnly(true);
+                    rdbmsPf.prepareStatement(statement.getQuery(), null, null, (String[]) null);
+                    BatchRunner batchRunner = new BatchRunner(rdbmsPf,
+                            Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_BATCH_ROWS)))
+                                    .orElse(DEFAULT_BATCH_ROWS));
+                    batchRunner.setAutoCommit(
+                            !"false".equalsIgnoreCase(jdbcProperties.getProperty(JDBC_AUTO_COMMIT, "").trim()));
+                    Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_COMMIT_INTERVAL)))
+                            .ifPresent(batchRunner::setCommitInterval);
+                    if (parameterSource != null) {
+                        batchRunner.setParameterSource(parameterSource, statement.getBinder());
+                    } else if (statement.getParameters() != null) {
+                        String[][] tuple = ParameterBinder.split(statement.getParameters());
+                        batchRunner.setParameterSource(ParameterSource.sequence(tuple[0]),
+                                ParameterBinder.compile(tuple[1]));
+                    }
+                    batchRunner.run(SweepRunner.parseValues(batchSizes));
+                    return;
+                }
+                if (statement == null) {
+                    LOGGER.info("Executing Scenario: " + scenarioFile);
+                    loadRunner.run(scenario);
+                    return;
+                }
+                String query = statement.getQuery();
+                Integer fetchSize = statement.getFetchSize();
+                Integer rowIndex = statement.getRowIndex();
+                Integer maxRows = statement.getMaxRows();
+                Integer lastRow = statement.getLastRow();
+                String[] parameters = statement.getParameters();
+                ParameterBinder binder = statement.getBinder();
                 LOGGER.info("Executing Query: " + query.toString());
-                rdbmsPf.prepareStatement(query, fetchSize, rowIndex + maxRows, parameters);
+                rdbmsPf.setForwardOnly(fetchMode.isForwardOnly());
+                rdbmsPf.prepareStatement(query, fetchSize, lastRow, parameters);
+                if (parameterSource != null)
+                    rdbmsPf.bindParameters(binder, parameterSource.next());
                 rdbmsPf.executeQuery(); // warm up
-                List<Map<String, Object>> result = rdbmsPf.fetchResult(rowIndex); // dry
-                                                                                  // run
-                LOGGER.info("Query Executed Successfully!");
-                LOGGER.info(() -> "Record Count: " + result.size());
-                LOGGER.fine(() -> "Output: ");
-                LOGGER.fine(() -> LINE_SEPARATOR + getFormattedDataTable(result));
-                long[] queryTimes = new long[runCount];
-                long[] fetchTimes = new long[runCount];
-                LOGGER.info("Executing Tests...");
-                for (int i = 0; i < runCount; i++) {
-                    long time = System.currentTimeMillis();
+                try (Writer output = outputFile != null ? Files.newBufferedWriter(outputFile)
+                        : LOGGER.isLoggable(Level.FINE) ? new StringWriter() : null) {
+                    long rowLimit = outputRows != null ? outputRows
+                            : outputFile != null ? Long.MAX_VALUE : sampleRows;
+                    RowConsumer preview = output == null ? RowConsumer.discarding()
+                            : new TableRenderer(output, rowLimit, outputWidth);
+                    long recordCount = rdbmsPf.fetchResult(rowIndex, preview); // dry run
+                    LOGGER.info("Query Executed Successfully!");
+                    LOGGER.info(() -> "Record Count: " + recordCount);
+                    if (outputFile != null)
+                        LOGGER.info("Output written to: " + outputFile);
+                    else if (output != null) {
+                        LOGGER.fine("Output: ");
+                        LOGGER.fine(LINE_SEPARATOR + output);
+                    }
+                }
+                Metrics setup = rdbmsPf.getMetrics();
+                LOGGER.info("Connect Time (ms): " + Histogram.millis(setup.get(Phase.CONNECT).getMax())
+                        + ", Prepare Time (ms): " + Histogram.millis(setup.get(Phase.PREPARE).getMax()));
+                if (loadRunner != null) {
+                    loadRunner.run(scenario);
+                    return;
+                }
+                if (pipeline != null) {
+                    PipelineRunner pipelineRunner = new PipelineRunner(
+                            pipelinePf -> pipelinePf.createConnection(connectionUrl, username, connectionPassword),
+                            pipeline, duration);
+                    Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_DECODE_THREADS)))
+                            .ifPresent(pipelineRunner::setDecodeThreads);
+                    Optional.ofNullable(getIntegerValue(jdbcProperties.getProperty(JDBC_QUEUE_CAPACITY)))
+                            .ifPresent(pipelineRunner::setQueueCapacity);
+                    pipelineRunner.setFetchMode(fetchMode);
+                    pipelineRunner.setParameterSource(statement.getParameterSources(), binder);
+                    pipelineRunner.run(query, fetchSize, rowIndex, maxRows, parameters);
+                    return;
+                }
+                if (sweep) {
+                    SweepRunner sweepRunner = new SweepRunner(rdbmsPf, runCount);
+                    sweepRunner.setFetchMode(fetchMode);
+                    sweepRunner.setParameterSource(parameterSource, binder);
+                    sweepRunner.run(query,
+                            sweepFetchSizes.length() > 0 ? SweepRunner.parseValues(sweepFetchSizes)
+                                    : Collections.singletonList(fetchSize),
+                            rowIndex,
+                            sweepMaxRows.length() > 0 ? SweepRunner.parseValues(sweepMaxRows)
+                                    : Collections.singletonList(maxRows),
+                            parameters);
+                    return;
+                }
+                Metrics metrics = new Metrics();
+                Metrics warmUp = new Metrics();
+                Histogram totals = new Histogram();
+                RowConsumer consumer = fetchMode.newConsumer();
+                ClientUsage clientUsage = new ClientUsage();
+                LOGGER.info(convergence == null ? "Executing Tests..."
+                        : "Executing Tests until the Median converges...");
+                for (int i = 0; convergence != null || i < runCount; i++) {
+                    boolean measured = convergence == null || convergence.isWarmedUp();
+                    rdbmsPf.setMetrics(measured ? metrics : warmUp);
+                    if (reconnect)
+                        rdbmsPf.createConnection(connectionUrl, username, connectionPassword);
+                    if (reconnect || reprepare)
+                        rdbmsPf.prepareStatement(query, fetchSize, lastRow, parameters);
+                    if (parameterSource != null)
+                        rdbmsPf.bindParameters(binder, parameterSource.next());
+                    ClientUsage.Snapshot start = ClientUsage.Snapshot.take();
+                    long started = System.nanoTime();
                     rdbmsPf.executeQuery();
-                    queryTimes[i] = System.currentTimeMillis() - time;
-                    time = System.currentTimeMillis();
-                    rdbmsPf.fetchResult(rowIndex);
-                    fetchTimes[i] = System.currentTimeMillis() - time;
-                    LOGGER.info("Executing Test Run: " + (i + 1));
-
+                    rdbmsPf.fetchResult(rowIndex, consumer);
+                    long time = System.nanoTime() - started;
+                    if (measured)
+                        totals.record(time);
+                    boolean gcOverlapped = measured && clientUsage.record(start, ClientUsage.Snapshot.take());
+                    int run = i + 1;
+                    LOGGER.fine(() -> "Executing " + (measured ? "Test" : "Warm-up") + " Run: " + run
+                            + (gcOverlapped ? " (overlapped by GC)" : ""));
+                    if (convergence != null && !convergence.record(time))
+                        break;
                 }
                 LOGGER.info("Test Result...");
-
-                LOGGER.info("Query Times (ms): All" + Arrays.toString(queryTimes) + ", Avg["
-                        + new BigDecimal(Arrays.stream(queryTimes).average().getAsDouble()).setScale(0,
-                                BigDecimal.ROUND_HALF_UP)
-                        + "], Stdiv["
-                        + new BigDecimal(Arrays.stream(queryTimes).mapToDouble(r -> new Double(r)).boxed()
-                                .collect(DoubleStatistics.collector()).getStandardDeviation()).setScale(1,
-                                        BigDecimal.ROUND_HALF_UP)
-                        + "]");
-                LOGGER.info("Fetch Times (ms): All" + Arrays.toString(fetchTimes) + ", Avg["
-                        + new BigDecimal(Arrays.stream(fetchTimes).average().getAsDouble()).setScale(0,
-                                BigDecimal.ROUND_HALF_UP)
-                        + "], Stdiv["
-                        + new BigDecimal(Arrays.stream(fetchTimes).mapToDouble(r -> new Double(r)).boxed()
-                                .collect(DoubleStatistics.collector()).getStandardDeviation()).setScale(1,
-                                        BigDecimal.ROUND_HALF_UP)
-                        + "]");
+                if (convergence != null)
+                    convergence.report(LOGGER);
+                metrics.forEach(
+                        (phase, histogram) -> LOGGER.info(phase.getLabel() + " Times (ms): " + histogram.summary()));
+                clientUsage.report(LOGGER, "");
+                if (consumer instanceof ColumnProfiler)
+                    ((ColumnProfiler) consumer).report(LOGGER);
+                if (resultStore != null) {
+                    Map<String, String> settings = new LinkedHashMap<>();
+                    settings.put(JDBC_URL, StoredRun.redactUrl(connectionUrl));
+                    settings.put(JDBC_FETCH_MODE, fetchMode.name().toLowerCase());
+                    settings.put(JDBC_FETCH_SIZE, String.valueOf(fetchSize));
+                    settings.put(JDBC_ROW_INDEX, String.valueOf(rowIndex));
+                    settings.put(JDBC_MAX_ROWS, String.valueOf(maxRows));
+                    settings.put(JDBC_PARAMETERS, parameters == null ? "" : String.join(",", parameters));
+                    settings.put(JDBC_PARAMETER_FILE, jdbcProperties.getProperty(JDBC_PARAMETER_FILE, "").trim());
+                    settings.put(JDBC_CONNECTION_LIFECYCLE, reconnect ? CONNECTION_LIFECYCLE_EXECUTION : "");
+                    settings.put(JDBC_REPREPARE, String.valueOf(reprepare));
+                    Map<String, Histogram> histograms = new LinkedHashMap<>();
+                    histograms.put(StoredRun.TOTAL, totals);
+                    metrics.forEach((phase, histogram) -> histograms.put(phase.name(), histogram));
+                    StoredRun run = new StoredRun(Instant.now().toString(),
+                            jdbcProperties.getProperty(JDBC_RESULT_LABEL, "").trim(), settings, histograms);
+                    if (baseline.length() > 0) {
+                        StoredRun baselineRun = resultStore.findBaseline(query, baseline);
+                        if (baselineRun == null)
+                            LOGGER.warning("No Baseline '" + baseline + "' found in " + resultStore.getFile(query));
+                        else
+                            regression = new Comparison(baselineRun, run, regressionThreshold).report(LOGGER);
+                    }
+                    resultStore.append(query, run);
+                    LOGGER.info("Test Run stored in: " + resultStore.getFile(query));
+                }
             }
 
         } catch (Exception e) {
             StringWriter sw = new StringWriter();
             e.printStackTrace(new PrintWriter(sw));
             LOGGER.severe(() -> "System Exception:" + sw.toString());
+            System.exit(ERROR_EXIT_CODE);
         }
+        if (regression)
+            System.exit(REGRESSION_EXIT_CODE);
     }
 }
@@ -0,0 +1,166 @@
+package org.anichakra.tools.db.perfinder.batch;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.rdbms.ParameterBinder;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
+import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.TableRenderer;
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+import org.anichakra.tools.db.perfinder.stats.Metrics.Phase;
+
+/**
+ * Writes the same number of rows through an INSERT, UPDATE, DELETE or MERGE
+ * statement with each batch size. With more than one batch size, the smallest
+ * one within {@link #TOLERANCE} of the best throughput is reported as the
+ * point where the throughput levels off.
+ */
+public class BatchRunner {
+    private final static double TOLERANCE = 0.05;
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+
+    static class Point {
+        private final int batchSize;
+        private final Metrics metrics = new Metrics();
+        private long rows;
+        private long updates;
+        private long elapsed;
+
+        Point(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        double getThroughput() {
+            return elapsed > 0 ? rows * 1e9 / elapsed : 0;
+        }
+    }
+
+    private final RdbmsPerfinder rdbmsPf;
+    private final long rowCount;
+    private boolean autoCommit = true;
+    private int commitInterval = 1;
+    private ParameterSource parameterSource;
+    private ParameterBinder binder;
+
+    public BatchRunner(RdbmsPerfinder rdbmsPf, long rowCount) {
+        if (rowCount < 1)
+            throw new IllegalArgumentException("jdbc.batchRows should be at least 1!");
+        this.rdbmsPf = rdbmsPf;
+        this.rowCount = rowCount;
+    }
+
+    public void setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 1)
+            throw new IllegalArgumentException("jdbc.commitInterval should be at least 1!");
+        this.commitInterval = commitInterval;
+    }
+
+    public void setParameterSource(ParameterSource parameterSource, ParameterBinder binder) {
+        this.parameterSource = parameterSource;
+        this.binder = binder;
+    }
+
+    public void run(List<Integer> batchSizes) {
+        List<Point> points = new ArrayList<>();
+        for (Integer batchSize : batchSizes) {
+            if (batchSize < 1)
+                throw new IllegalArgumentException("jdbc.batchSize should be at least 1!");
+            points.add(new Point(batchSize));
+        }
+        rdbmsPf.setAutoCommit(autoCommit);
+        Metrics original = rdbmsPf.getMetrics();
+        try {
+            write(points.get(0).batchSize, points.get(0).batchSize, new Point(0)); // warm up
+            for (Point point : points) {
+                LOGGER.info("Writing " + rowCount + " Rows in Batches of " + point.batchSize
+                        + (autoCommit ? "..." : ", Committing every " + commitInterval + " Batches..."));
+                rdbmsPf.setMetrics(point.metrics);
+                long start = System.nanoTime();
+                write(rowCount, point.batchSize, point);
+                point.elapsed = System.nanoTime() - start;
+            }
+        } finally {
+            rdbmsPf.setMetrics(original);
+        }
+        report(points);
+    }
+
+    private void write(long rows, int batchSize, Point point) {
+        long batches = 0;
+        for (long row = 1; row <= rows; row++) {
+            rdbmsPf.addBatch(parameterSource == null ? null : binder,
+                    parameterSource == null ? null : parameterSource.next());
+            if (row % batchSize == 0 || row == rows) {
+                for (int updateCount : rdbmsPf.executeBatch()) {
+                    point.rows++;
+                    if (updateCount > 0)
+                        point.updates += updateCount;
+                }
+                batches++;
+                if (!autoCommit && (batches % commitInterval == 0 || row == rows))
+                    rdbmsPf.commit();
+            }
+        }
+    }
+
+    private void report(List<Point> points) {
+        LOGGER.info("Batch Test Result...");
+        for (Point point : points) {
+            String name = "Batch Size " + point.batchSize;
+            LOGGER.info(name + ": Rows[" + point.rows + "], Updated Rows[" + point.updates + "], Elapsed (s)["
+                    + scale(point.elapsed / 1e9, 3) + "], Throughput: " + scale(point.getThroughput(), 1)
+                    + " rows/s");
+            if (points.size() == 1)
+                point.metrics.forEach((phase, histogram) -> LOGGER
+                        .info(phase.getLabel() + " Times (ms): " + histogram.summary()));
+        }
+        if (points.size() == 1)
+            return;
+
+        Point best = points.get(0);
+        for (Point point : points) {
+            if (point.getThroughput() > best.getThroughput())
+                best = point;
+        }
+        Point levelled = best;
+        for (Point point : points) {
+            if (point.getThroughput() >= best.getThroughput() * (1 - TOLERANCE) && point.batchSize < levelled.batchSize)
+                levelled = point;
+        }
+        String[] headers = { "Batch Size", "Rows/s", "Bind p50", "Batch p50", "Batch p99", "Commit p50",
+                "Commit p99" };
+        List<String[]> rows = new ArrayList<>();
+        for (Point point : points) {
+            Histogram batches = point.metrics.get(Phase.BATCH);
+            Histogram commits = point.metrics.get(Phase.COMMIT);
+            rows.add(new String[] { String.valueOf(point.batchSize), scale(point.getThroughput(), 1).toPlainString(),
+                    millis(point.metrics.get(Phase.BIND), 50), millis(batches, 50), millis(batches, 99),
+                    millis(commits, 50), millis(commits, 99) });
+        }
+        StringWriter table = new StringWriter();
+        new TableRenderer(table, Long.MAX_VALUE, Integer.MAX_VALUE).render(headers, rows);
+        LOGGER.info("Batch Size Sweep Result (times in ms)..." + System.lineSeparator() + table);
+        LOGGER.info("Throughput levels off at jdbc.batchSize=" + levelled.batchSize + " with "
+                + scale(levelled.getThroughput(), 1) + " rows/s, the best is " + scale(best.getThroughput(), 1)
+                + " rows/s with jdbc.batchSize=" + best.batchSize);
+    }
+
+    private static String millis(Histogram histogram, double percentile) {
+        return histogram.getCount() == 0 ? "-"
+                : Histogram.millis(histogram.getValueAtPercentile(percentile)).toPlainString();
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,144 @@
+package org.anichakra.tools.db.perfinder.load;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+
+/**
+ * Reports the executions of each interval of a load test while it runs. The
+ * interval histograms of the workers are drained into one histogram every
+ * interval, so the memory used does not grow with the length of the test.
+ * Each interval is logged as a line and appended to a CSV file, or to a JSON
+ * lines file when the file name ends with .jsonl or .json. The last, partial
+ * interval is reported after the workers have closed their connections, so
+ * it leaves the connection count out.
+ */
+class IntervalReporter implements AutoCloseable {
+    private static final String[] COLUMNS = { "time", "elapsed_s", "executions", "rows", "queries_per_s",
+            "rows_per_s", "min_ms", "p50_ms", "p90_ms", "p99_ms", "max_ms", "avg_ms", "connections" };
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+
+    private final List<LoadRunner.WorkerStats> stats;
+    private final IntSupplier openConnections;
+    private final Histogram times = new Histogram();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "db-perfinder-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final BufferedWriter writer;
+    private final boolean json;
+    private long start;
+    private long last;
+    private boolean closed;
+
+    IntervalReporter(List<LoadRunner.WorkerStats> stats, IntSupplier openConnections, Path file) {
+        this.stats = stats;
+        this.openConnections = openConnections;
+        String name = file == null ? "" : file.getFileName().toString().toLowerCase();
+        json = name.endsWith(".jsonl") || name.endsWith(".json");
+        try {
+            writer = file == null ? null
+                    : Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (writer != null && !json && Files.size(file) == 0) {
+                writer.write(String.join(",", COLUMNS));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot open report file!", e);
+        }
+    }
+
+    void start(long start, long intervalSeconds) {
+        this.start = start;
+        this.last = start;
+        timer.scheduleAtFixedRate(() -> report(false), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private synchronized void report(boolean partial) {
+        if (closed)
+            return;
+        long executions = 0;
+        long rows = 0;
+        for (LoadRunner.WorkerStats worker : stats) {
+            synchronized (worker) {
+                times.merge(worker.intervalTimes);
+                executions += worker.intervalExecutions;
+                rows += worker.intervalRows;
+                worker.intervalTimes.reset();
+                worker.intervalExecutions = 0;
+                worker.intervalRows = 0;
+            }
+        }
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - last) / 1e9;
+        last = now;
+        Object[] values = { Instant.now(), scale((now - start) / 1e9, 1), executions, rows,
+                scale(executions / seconds, 1), scale(rows / seconds, 1), Histogram.millis(times.getMin()),
+                Histogram.millis(times.getValueAtPercentile(50)), Histogram.millis(times.getValueAtPercentile(90)),
+                Histogram.millis(times.getValueAtPercentile(99)), Histogram.millis(times.getMax()),
+                Histogram.millis(times.getMean()), partial ? null : openConnections.getAsInt() };
+        times.reset();
+        LOGGER.info("[" + values[1] + "s] " + values[4] + " queries/s, " + values[5] + " rows/s, Times (ms): p50["
+                + values[7] + "], p99[" + values[9] + "], Max[" + values[10] + "]"
+                + (partial ? "" : ", Connections[" + values[12] + "]"));
+        if (writer != null)
+            write(values);
+    }
+
+    private void write(Object[] values) {
+        StringBuilder line = new StringBuilder(json ? "{" : "");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                line.append(',');
+            if (json)
+                line.append('"').append(COLUMNS[i]).append("\":");
+            boolean quoted = json && values[i] instanceof Instant;
+            if (values[i] == null)
+                line.append(json ? "null" : "");
+            else
+                line.append(quoted ? "\"" : "").append(values[i]).append(quoted ? "\"" : "");
+        }
+        try {
+            writer.write(line.append(json ? "}" : "").toString());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            LOGGER.warning("Cannot write to report file: " + e);
+        }
+    }
+
+    // reports the last, partial interval
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        timer.shutdownNow();
+        if (System.nanoTime() - last > TimeUnit.MILLISECONDS.toNanos(100))
+            report(true);
+        closed = true;
+        try {
+            if (writer != null)
+                writer.close();
+        } catch (IOException e) {
+            // nothing can be done
+        }
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,471 @@
+package org.anichakra.tools.db.perfinder.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.rdbms.FetchMode;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
+import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.RowConsumer;
+import org.anichakra.tools.db.perfinder.stats.ClientUsage;
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+import org.anichakra.tools.db.perfinder.stats.Metrics.Phase;
+
+public class LoadRunner {
+    // beyond this many results of workers and statements, the workers share groups to bound the memory
+    private final static int MAX_WORKER_STATS = 64;
+
+    static class Schedule {
+        private final CountDownLatch startSignal = new CountDownLatch(1);
+        private final long durationNanos;
+        private final double periodNanos;
+        private final AtomicLong slots = new AtomicLong();
+        private long start;
+
+        Schedule(long durationNanos, double targetRate) {
+            this.durationNanos = durationNanos;
+            this.periodNanos = targetRate > 0 ? 1e9 / targetRate : 0;
+        }
+
+        void begin() {
+            start = System.nanoTime();
+            startSignal.countDown();
+        }
+
+        boolean isOpenLoop() {
+            return periodNanos > 0;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        // the intended start of the next execution as an offset from the begin, or -1 once the duration is over,
+        // as System.nanoTime() itself may be negative
+        long next() throws InterruptedException {
+            startSignal.await();
+            long offset = isOpenLoop() ? (long) (slots.getAndIncrement() * periodNanos) : System.nanoTime() - start;
+            return offset < durationNanos ? offset : -1;
+        }
+    }
+
+    static class WorkerStats {
+        final Metrics metrics = new Metrics();
+        final Metrics[] statementMetrics;
+        final long[] statementExecutions;
+        final long[] statementRows;
+        final Histogram responseTimes = new Histogram();
+        final Histogram serviceTimes = new Histogram();
+        final Histogram startLags = new Histogram();
+        final Histogram connectionWaits = new Histogram();
+        final ClientUsage clientUsage = new ClientUsage();
+        final Histogram intervalTimes = new Histogram();
+        long intervalExecutions;
+        long intervalRows;
+        long executions;
+        long rows;
+        long blockedTime;
+        long blockedCount;
+
+        WorkerStats(int statementCount) {
+            statementMetrics = new Metrics[statementCount];
+            for (int i = 0; i < statementCount; i++) {
+                statementMetrics[i] = new Metrics();
+            }
+            statementExecutions = new long[statementCount];
+            statementRows = new long[statementCount];
+        }
+
+        synchronized void recordConnectionWait(long waitNanos) {
+            connectionWaits.record(waitNanos);
+        }
+
+        synchronized void recordExecution(int statement, long intended, long started, long end, long fetchedRows,
+                boolean openLoop) {
+            if (openLoop) {
+                // measured from the intended start, so a stalled database cannot hide its queueing delay
+                responseTimes.record(end - intended);
+                serviceTimes.record(end - started);
+                startLags.record(started - intended);
+            }
+            intervalTimes.record(end - (openLoop ? intended : started));
+            intervalExecutions++;
+            intervalRows += fetchedRows;
+            executions++;
+            rows += fetchedRows;
+            statementExecutions[statement]++;
+            statementRows[statement] += fetchedRows;
+        }
+
+        synchronized void recordBlocked(long time, long count) {
+            blockedTime += time;
+            blockedCount += count;
+        }
+
+        synchronized WorkerStats merge(WorkerStats other) {
+            metrics.merge(other.metrics);
+            clientUsage.merge(other.clientUsage);
+            for (int i = 0; i < statementMetrics.length; i++) {
+                statementMetrics[i].merge(other.statementMetrics[i]);
+            }
+            synchronized (other) {
+                for (int i = 0; i < statementExecutions.length; i++) {
+                    statementExecutions[i] += other.statementExecutions[i];
+                    statementRows[i] += other.statementRows[i];
+                }
+                responseTimes.merge(other.responseTimes);
+                serviceTimes.merge(other.serviceTimes);
+                startLags.merge(other.startLags);
+                connectionWaits.merge(other.connectionWaits);
+                executions += other.executions;
+                rows += other.rows;
+                blockedTime += other.blockedTime;
+                blockedCount += other.blockedCount;
+            }
+            return this;
+        }
+
+        // the connection phases along with the phases of every statement
+        Metrics getTotalMetrics() {
+            Metrics total = new Metrics().merge(metrics);
+            for (Metrics statement : statementMetrics) {
+                total.merge(statement);
+            }
+            return total;
+        }
+    }
+
+    class Worker implements Callable<Void> {
+        final WorkerStats stats;
+        final Scenario scenario;
+        final ParameterSource[] parameterSources;
+        final Schedule schedule;
+        final CountDownLatch ready;
+        final RowConsumer consumer = fetchMode.newConsumer();
+        RdbmsPerfinder rdbmsPf;
+
+        Worker(WorkerStats stats, Scenario scenario, ParameterSource[] parameterSources, Schedule schedule,
+                CountDownLatch ready) {
+            this.stats = stats;
+            this.scenario = scenario;
+            this.parameterSources = parameterSources;
+            this.schedule = schedule;
+            this.ready = ready;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                try {
+                    if (!connectPerExecution)
+                        open(System.nanoTime(), -1);
+                } finally {
+                    ready.countDown();
+                }
+                Random random = ThreadLocalRandom.current();
+                long offset;
+                while ((offset = schedule.next()) >= 0) {
+                    long intended = schedule.getStart() + offset;
+                    int s = scenario.pick(random);
+                    Scenario.Statement statement = scenario.getStatements().get(s);
+                    String[] values = parameterSources[s] == null ? null : parameterSources[s].next();
+                    long time;
+                    while ((time = System.nanoTime()) - intended < 0) {
+                        LockSupport.parkNanos(intended - time);
+                    }
+                    if (connectPerExecution)
+                        open(time, s);
+                    else if (reprepare)
+                        prepare(s);
+                    try {
+                        rdbmsPf.selectStatement(statement.getName());
+                        rdbmsPf.setMetrics(stats.statementMetrics[s]);
+                        ClientUsage.Snapshot snapshot = ClientUsage.Snapshot.take();
+                        if (values != null)
+                            rdbmsPf.bindParameters(statement.getBinder(), values);
+                        long started = System.nanoTime();
+                        rdbmsPf.executeQuery();
+                        long rows = rdbmsPf.fetchResult(statement.getRowIndex(), consumer);
+                        stats.clientUsage.record(snapshot, ClientUsage.Snapshot.take());
+                        stats.recordExecution(s, intended, started, System.nanoTime(), rows, schedule.isOpenLoop());
+                    } finally {
+                        if (connectPerExecution)
+                            close();
+                    }
+                    long pause = statement.getThinkTime() == null ? thinkTime : statement.getThinkTime();
+                    if (pause > 0 && !schedule.isOpenLoop())
+                        Thread.sleep(pause);
+                }
+            } finally {
+                close();
+                ThreadInfo info = threadBean.isThreadContentionMonitoringEnabled()
+                        ? threadBean.getThreadInfo(Thread.currentThread().getId())
+                        : null;
+                if (info != null)
+                    stats.recordBlocked(info.getBlockedTime(), info.getBlockedCount());
+            }
+            return null;
+        }
+
+        // opens a connection and prepares the given statement, or all of them when it is -1
+        private void open(long time, int statement) throws InterruptedException {
+            if (connectionPermits != null) {
+                connectionPermits.acquire();
+                stats.recordConnectionWait(System.nanoTime() - time);
+            }
+            rdbmsPf = new RdbmsPerfinder();
+            openConnections.incrementAndGet();
+            rdbmsPf.setMetrics(stats.metrics);
+            rdbmsPf.setForwardOnly(fetchMode.isForwardOnly());
+            try {
+                connector.accept(rdbmsPf);
+                for (int i = 0; i < scenario.size(); i++) {
+                    if (statement < 0 || statement == i)
+                        prepare(i);
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void prepare(int s) {
+            Scenario.Statement statement = scenario.getStatements().get(s);
+            rdbmsPf.setMetrics(stats.statementMetrics[s]);
+            rdbmsPf.prepareNamedStatement(statement.getName(), statement.getQuery(), statement.getFetchSize(),
+                    statement.getLastRow(), statement.getParameters());
+        }
+
+        private void close() {
+            if (rdbmsPf == null)
+                return;
+            try {
+                rdbmsPf.close();
+            } catch (Exception e) {
+                // nothing can be done
+            }
+            rdbmsPf = null;
+            openConnections.decrementAndGet();
+            if (connectionPermits != null)
+                connectionPermits.release();
+        }
+    }
+
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final Consumer<RdbmsPerfinder> connector;
+    private final int concurrency;
+    private final long durationSeconds;
+    private FetchMode fetchMode = FetchMode.MATERIALIZE;
+    private double targetRate;
+    private boolean virtualThreads;
+    private boolean connectPerExecution;
+    private Semaphore connectionPermits;
+    private long thinkTime;
+    private boolean reprepare;
+    private Integer reportInterval;
+    private Path reportFile;
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    public LoadRunner(Consumer<RdbmsPerfinder> connector, int concurrency, long durationSeconds) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("jdbc.concurrency should be at least 1!");
+        if (durationSeconds < 1)
+            throw new IllegalArgumentException("jdbc.duration should be at least 1 second!");
+        this.connector = connector;
+        this.concurrency = concurrency;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    public void setTargetRate(double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        if (virtualThreads && !VirtualThreads.isSupported())
+            throw new IllegalArgumentException("jdbc.executor=virtual needs Java 21 or later!");
+        this.virtualThreads = virtualThreads;
+    }
+
+    public void setConnectPerExecution(boolean connectPerExecution, Integer maxConnections) {
+        if (maxConnections != null && !connectPerExecution)
+            throw new IllegalArgumentException("jdbc.maxConnections needs jdbc.connectionLifecycle=execution!");
+        if (maxConnections != null && maxConnections < 1)
+            throw new IllegalArgumentException("jdbc.maxConnections should be at least 1!");
+        this.connectPerExecution = connectPerExecution;
+        this.connectionPermits = maxConnections == null ? null : new Semaphore(maxConnections, true);
+    }
+
+    public void setThinkTime(long thinkTime) {
+        this.thinkTime = thinkTime;
+    }
+
+    public void setReprepare(boolean reprepare) {
+        this.reprepare = reprepare;
+    }
+
+    public void setReportInterval(Integer reportInterval, Path reportFile) {
+        if (reportInterval != null && reportInterval < 1)
+            throw new IllegalArgumentException("jdbc.reportInterval should be at least 1 second!");
+        if (reportFile != null && reportInterval == null)
+            throw new IllegalArgumentException("jdbc.reportFile needs jdbc.reportInterval!");
+        this.reportInterval = reportInterval;
+        this.reportFile = reportFile;
+    }
+
+    public void run(Scenario scenario) throws InterruptedException {
+        ParameterSource[] parameterSources = new ParameterSource[scenario.size()];
+        for (int i = 0; i < parameterSources.length; i++) {
+            Supplier<ParameterSource> sources = scenario.getStatements().get(i).getParameterSources();
+            parameterSources[i] = sources == null ? null : ParameterSource.synchronizedSource(sources.get());
+        }
+        ExecutorService executor = virtualThreads ? VirtualThreads.newExecutor()
+                : Executors.newFixedThreadPool(concurrency);
+        if (!virtualThreads && threadBean.isThreadContentionMonitoringSupported())
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        VirtualThreads.PinningMonitor pinningMonitor = virtualThreads ? VirtualThreads.startPinningMonitor() : null;
+        try {
+            String workerName = virtualThreads ? " Virtual Thread Sessions" : " Workers";
+            LOGGER.info((connectPerExecution ? "Starting " : "Opening Connections for ") + concurrency + workerName
+                    + "...");
+            Schedule schedule = new Schedule(TimeUnit.SECONDS.toNanos(durationSeconds), targetRate);
+            CountDownLatch ready = new CountDownLatch(concurrency);
+            int groups = Math.max(1, MAX_WORKER_STATS / scenario.size());
+            List<WorkerStats> stats = new ArrayList<>();
+            List<Future<Void>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                if (i < groups)
+                    stats.add(new WorkerStats(scenario.size()));
+                futures.add(executor.submit(
+                        new Worker(stats.get(i % groups), scenario, parameterSources, schedule, ready)));
+            }
+            ready.await();
+            for (Future<Void> future : futures) {
+                if (future.isDone())
+                    await(future);
+            }
+            LOGGER.info("Executing Load Test for " + durationSeconds + "s with " + concurrency + workerName
+                    + (schedule.isOpenLoop() ? " at a Target Rate of " + scale(targetRate, 1) + " queries/s..." : "..."));
+            IntervalReporter reporter = reportInterval == null ? null
+                    : new IntervalReporter(stats, openConnections::get, reportFile);
+            long start = System.nanoTime();
+            schedule.begin();
+            if (reporter != null)
+                reporter.start(start, reportInterval);
+            try {
+                for (Future<Void> future : futures) {
+                    await(future);
+                }
+            } finally {
+                if (reporter != null)
+                    reporter.close();
+            }
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            if (pinningMonitor != null)
+                pinningMonitor.close();
+            report(scenario, stats, elapsedSeconds, schedule.isOpenLoop(), pinningMonitor);
+        } finally {
+            executor.shutdownNow();
+            if (pinningMonitor != null)
+                pinningMonitor.close();
+            for (ParameterSource parameterSource : parameterSources) {
+                if (parameterSource != null)
+                    parameterSource.close();
+            }
+        }
+    }
+
+    private static void await(Future<Void> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Load test worker failed!", e.getCause());
+        }
+    }
+
+    private void report(Scenario scenario, List<WorkerStats> stats, double elapsedSeconds, boolean openLoop,
+            VirtualThreads.PinningMonitor pinningMonitor) {
+        WorkerStats all = new WorkerStats(scenario.size());
+        LOGGER.info("Load Test Result...");
+        boolean perWorker = concurrency <= stats.size();
+        if (!perWorker)
+            LOGGER.info("Results of " + concurrency + " workers are merged into " + stats.size() + " groups");
+        for (int i = 0; i < stats.size(); i++) {
+            WorkerStats worker = stats.get(i);
+            all.merge(worker);
+            if (perWorker) {
+                Metrics metrics = worker.getTotalMetrics();
+                LOGGER.info("Worker " + (i + 1) + ": Executions[" + worker.executions + "], Rows[" + worker.rows
+                        + "]");
+                LOGGER.info("Worker " + (i + 1) + " Query Times (ms): "
+                        + metrics.get(Phase.EXECUTE).summary());
+                LOGGER.info("Worker " + (i + 1) + " Fetch Times (ms): " + metrics.get(Phase.FETCH).summary());
+            }
+        }
+        LOGGER.info("Elapsed (s): " + scale(elapsedSeconds, 1) + ", Executions[" + all.executions + "], Rows["
+                + all.rows + "]");
+        LOGGER.info("Throughput: " + scale(all.executions / elapsedSeconds, 1) + " queries/s, "
+                + scale(all.rows / elapsedSeconds, 1) + " rows/s");
+        if (connectionPermits != null)
+            LOGGER.info("All Workers Connection Wait Times (ms): " + all.connectionWaits.summary());
+        all.getTotalMetrics().forEach((phase, histogram) -> LOGGER
+                .info("All Workers " + phase.getLabel() + " Times (ms): " + histogram.summary()));
+        if (openLoop) {
+            LOGGER.info("All Workers Response Times from Intended Start (ms): " + all.responseTimes.summary());
+            LOGGER.info("All Workers Response Times from Actual Start (ms): " + all.serviceTimes.summary());
+            LOGGER.info("All Workers Start Lags (ms): " + all.startLags.summary());
+        }
+        all.clientUsage.report(LOGGER, "All Workers ");
+        if (scenario.size() > 1) {
+            for (int i = 0; i < scenario.size(); i++) {
+                String name = "Statement " + scenario.getStatements().get(i).getName();
+                LOGGER.info(name + ": Executions[" + all.statementExecutions[i] + "], Share[" + scale(
+                        all.executions == 0 ? 0 : 100.0 * all.statementExecutions[i] / all.executions, 1)
+                        + "%] of Weight[" + scale(100 * scenario.getShare(i), 1) + "%], Rows["
+                        + all.statementRows[i] + "]");
+                LOGGER.info(name + " Throughput: " + scale(all.statementExecutions[i] / elapsedSeconds, 1)
+                        + " queries/s, " + scale(all.statementRows[i] / elapsedSeconds, 1) + " rows/s");
+                all.statementMetrics[i].forEach((phase, histogram) -> LOGGER
+                        .info(name + " " + phase.getLabel() + " Times (ms): " + histogram.summary()));
+            }
+        }
+        if (!virtualThreads && threadBean.isThreadContentionMonitoringEnabled())
+            LOGGER.info("All Workers Blocked on Monitors: Count[" + all.blockedCount + "], Time (ms)["
+                    + all.blockedTime + "]");
+        if (pinningMonitor != null)
+            LOGGER.info("Carrier Thread Pinned Times (ms): " + pinningMonitor.getPinnedTimes().summary());
+        else if (virtualThreads)
+            LOGGER.info("Carrier thread pinning is not monitored, JFR event streaming is not available");
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return new BigDecimal(value).setScale(scale, BigDecimal.ROUND_HALF_UP);
+    }
+}
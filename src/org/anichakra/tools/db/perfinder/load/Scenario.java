@@ -0,0 +1,149 @@
+package org.anichakra.tools.db.perfinder.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.anichakra.tools.db.perfinder.rdbms.ParameterBinder;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
+
+/**
+ * A mix of named statements run by the load test workers, each picked by
+ * weight on every execution.
+ */
+public class Scenario {
+
+    public static class Statement {
+        private final String name;
+        private final String query;
+        private final double weight;
+        private Integer fetchSize;
+        private Integer rowIndex;
+        private Integer maxRows;
+        private String[] parameters;
+        private Supplier<ParameterSource> parameterSources;
+        private ParameterBinder binder;
+        private Long thinkTime;
+
+        public Statement(String name, String query, double weight) {
+            if (query == null || query.trim().length() == 0)
+                throw new IllegalArgumentException("query is not provided for statement " + name + "!");
+            if (!(weight > 0))
+                throw new IllegalArgumentException("weight of statement " + name + " should be positive!");
+            this.name = name;
+            this.query = query;
+            this.weight = weight;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public void setFetchSize(Integer fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public void setRowIndex(Integer rowIndex) {
+            this.rowIndex = rowIndex;
+        }
+
+        public void setMaxRows(Integer maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public void setParameters(String[] parameters) {
+            this.parameters = parameters;
+        }
+
+        public void setParameterSource(Supplier<ParameterSource> parameterSources, ParameterBinder binder) {
+            this.parameterSources = parameterSources;
+            this.binder = binder;
+        }
+
+        public void setThinkTime(Long thinkTime) {
+            this.thinkTime = thinkTime;
+        }
+
+        public Integer getFetchSize() {
+            return fetchSize;
+        }
+
+        public Integer getRowIndex() {
+            return rowIndex;
+        }
+
+        public Integer getMaxRows() {
+            return maxRows;
+        }
+
+        // max rows counts from the first row, not from the row index
+        public Integer getLastRow() {
+            return maxRows == null ? null : (rowIndex == null ? 0 : rowIndex) + maxRows;
+        }
+
+        public String[] getParameters() {
+            return parameters;
+        }
+
+        public Supplier<ParameterSource> getParameterSources() {
+            return parameterSources;
+        }
+
+        public ParameterBinder getBinder() {
+            return binder;
+        }
+
+        public Long getThinkTime() {
+            return thinkTime;
+        }
+    }
+
+    private final List<Statement> statements;
+    private final double[] cumulativeWeights;
+
+    public Scenario(List<Statement> statements) {
+        if (statements.isEmpty())
+            throw new IllegalArgumentException("No statement found in the scenario!");
+        this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+        cumulativeWeights = new double[statements.size()];
+        double total = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            total += statements.get(i).weight;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    double getShare(int statement) {
+        return statements.get(statement).weight / cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+    int pick(Random random) {
+        if (cumulativeWeights.length == 1)
+            return 0;
+        double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] > value)
+                high = middle;
+            else
+                low = middle + 1;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,112 @@
+package org.anichakra.tools.db.perfinder.load;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+
+/**
+ * Virtual threads (Java 21+) and the JFR event stream (Java 14+) are looked up
+ * reflectively, so the tool still compiles and runs on Java 8 and only the
+ * virtual executor needs a newer runtime.
+ */
+final class VirtualThreads {
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final MethodHandle NEW_EXECUTOR = lookupExecutor();
+
+    static class PinningMonitor implements AutoCloseable {
+        private final Object stream;
+        private final Histogram pinnedTimes = new Histogram();
+        private boolean closed;
+
+        private PinningMonitor(Object stream) {
+            this.stream = stream;
+        }
+
+        private synchronized void record(Duration duration) {
+            pinnedTimes.record(duration.toNanos());
+        }
+
+        synchronized Histogram getPinnedTimes() {
+            return pinnedTimes.copy();
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                try {
+                    // flushes the pending events, available from Java 20
+                    stream.getClass().getMethod("stop").invoke(stream);
+                } catch (NoSuchMethodException e) {
+                    // the events of the last second may be lost
+                }
+                stream.getClass().getMethod("close").invoke(stream);
+            } catch (ReflectiveOperationException e) {
+                // nothing can be done
+            }
+        }
+    }
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle lookupExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null)
+            throw new UnsupportedOperationException(
+                    "jdbc.executor=virtual needs Java 21 or later, running on " + System.getProperty("java.version"));
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke();
+        } catch (Throwable e) {
+            throw new UnsupportedOperationException("Virtual threads are not available!", e);
+        }
+    }
+
+    static PinningMonitor startPinningMonitor() {
+        try {
+            Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object stream = streamClass.getConstructor().newInstance();
+            Object settings = streamClass.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+            Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(settings,
+                    Duration.ZERO);
+            PinningMonitor monitor = new PinningMonitor(stream);
+            Method getDuration = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getDuration");
+            Consumer<Object> handler = event -> {
+                try {
+                    monitor.record((Duration) getDuration.invoke(event));
+                } catch (ReflectiveOperationException e) {
+                    // nothing can be done
+                }
+            };
+            streamClass.getMethod("onEvent", String.class, Consumer.class).invoke(stream, PINNED_EVENT, handler);
+            streamClass.getMethod("startAsync").invoke(stream);
+            return monitor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.fine(() -> "Carrier thread pinning cannot be monitored: " + e);
+            return null;
+        }
+    }
+}
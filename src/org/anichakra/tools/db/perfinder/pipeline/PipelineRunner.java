@@ -0,0 +1,316 @@
+package org.anichakra.tools.db.perfinder.pipeline;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.rdbms.FetchMode;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterBinder;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
+import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.RowConsumer;
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+
+/**
+ * Finds the most rows per second the client can pull by running the query in
+ * two stages. The execute stage keeps a query in flight on each connection
+ * and hands the executed result over a bounded queue to the fetch and decode
+ * stage, which reads the rows and releases the connection for its next
+ * execution. The time each stage is busy, waiting or blocked tells whether
+ * the database or the client is the bottleneck.
+ */
+public class PipelineRunner {
+    private final static double SATURATED = 0.9;
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+
+    private static class Slot {
+        private final RdbmsPerfinder rdbmsPf = new RdbmsPerfinder();
+        private final Semaphore free = new Semaphore(1);
+        private final Metrics metrics = new Metrics();
+        private long queued;
+    }
+
+    private static final Slot END = new Slot();
+
+    private static class StageStats {
+        private final Histogram queueTimes = new Histogram();
+        private long busy;
+        private long waiting;
+        private long blocked;
+        private long decoding;
+        private long executions;
+        private long rows;
+
+        private StageStats merge(StageStats other) {
+            queueTimes.merge(other.queueTimes);
+            busy += other.busy;
+            waiting += other.waiting;
+            blocked += other.blocked;
+            decoding += other.decoding;
+            executions += other.executions;
+            rows += other.rows;
+            return this;
+        }
+    }
+
+    // times the reading of the column values, apart from moving to the next row
+    private static class TimedConsumer implements RowConsumer {
+        private final RowConsumer consumer;
+        private long time;
+
+        TimedConsumer(RowConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void begin(ResultSetMetaData metaData) throws SQLException {
+            consumer.begin(metaData);
+        }
+
+        @Override
+        public void accept(ResultSet rs) throws SQLException {
+            long start = System.nanoTime();
+            consumer.accept(rs);
+            time += System.nanoTime() - start;
+        }
+
+        @Override
+        public void end() throws SQLException {
+            consumer.end();
+        }
+    }
+
+    private final Consumer<RdbmsPerfinder> connector;
+    private final int connections;
+    private final long durationSeconds;
+    private int decodeThreads = 1;
+    private int queueCapacity;
+    private FetchMode fetchMode = FetchMode.MATERIALIZE;
+    private Supplier<ParameterSource> parameterSources;
+    private ParameterBinder binder;
+
+    public PipelineRunner(Consumer<RdbmsPerfinder> connector, int connections, long durationSeconds) {
+        if (connections < 1)
+            throw new IllegalArgumentException("jdbc.pipeline should be at least 1!");
+        if (durationSeconds < 1)
+            throw new IllegalArgumentException("jdbc.duration should be at least 1 second!");
+        this.connector = connector;
+        this.connections = connections;
+        this.durationSeconds = durationSeconds;
+        this.queueCapacity = connections;
+    }
+
+    public void setDecodeThreads(int decodeThreads) {
+        if (decodeThreads < 1)
+            throw new IllegalArgumentException("jdbc.decodeThreads should be at least 1!");
+        this.decodeThreads = decodeThreads;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("jdbc.queueCapacity should be at least 1!");
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    public void setParameterSource(Supplier<ParameterSource> parameterSources, ParameterBinder binder) {
+        this.parameterSources = parameterSources;
+        this.binder = binder;
+    }
+
+    public void run(String query, Integer fetchSize, Integer rowIndex, Integer maxRows, String[] parameters)
+            throws Exception {
+        Integer lastRow = maxRows == null ? null : (rowIndex == null ? 0 : rowIndex) + maxRows;
+        List<Slot> slots = new ArrayList<>();
+        BlockingQueue<Slot> queue = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService executor = Executors.newFixedThreadPool(connections + decodeThreads);
+        try (ParameterSource parameterSource = parameterSources == null ? null
+                : ParameterSource.synchronizedSource(parameterSources.get())) {
+            LOGGER.info("Opening " + connections + " Connections...");
+            for (int i = 0; i < connections; i++) {
+                Slot slot = new Slot();
+                slots.add(slot);
+                connector.accept(slot.rdbmsPf);
+                slot.rdbmsPf.setForwardOnly(fetchMode.isForwardOnly());
+                slot.rdbmsPf.prepareStatement(query, fetchSize, lastRow, parameters);
+                slot.rdbmsPf.setMetrics(slot.metrics);
+            }
+            LOGGER.info("Executing Pipeline of " + connections + " Connections and " + decodeThreads
+                    + " Decode Threads for " + durationSeconds + " seconds...");
+            List<StageStats> executeStats = new ArrayList<>();
+            List<StageStats> decodeStats = new ArrayList<>();
+            List<Future<Void>> decoders = new ArrayList<>();
+            for (int i = 0; i < decodeThreads; i++) {
+                StageStats stats = new StageStats();
+                decodeStats.add(stats);
+                decoders.add(executor.submit(() -> decode(queue, rowIndex, stats)));
+            }
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+            List<Future<Void>> executors = new ArrayList<>();
+            for (Slot slot : slots) {
+                StageStats stats = new StageStats();
+                executeStats.add(stats);
+                executors.add(executor.submit(() -> execute(slot, queue, parameterSource, deadline, stats)));
+            }
+            for (Future<Void> future : executors) {
+                await(future, decoders);
+            }
+            for (int i = 0; i < decodeThreads; i++) {
+                queue.put(END);
+            }
+            for (Future<Void> future : decoders) {
+                await(future);
+            }
+            long elapsed = System.nanoTime() - start;
+            report(slots, merge(executeStats), merge(decodeStats), elapsed);
+        } finally {
+            executor.shutdownNow();
+            for (Slot slot : slots) {
+                try {
+                    slot.rdbmsPf.close();
+                } catch (Exception e) {
+                    // nothing can be done
+                }
+            }
+        }
+    }
+
+    private Void execute(Slot slot, BlockingQueue<Slot> queue, ParameterSource parameterSource, long deadline,
+            StageStats stats) throws InterruptedException {
+        while (System.nanoTime() < deadline) {
+            long waitStart = System.nanoTime();
+            slot.free.acquire();
+            long start = System.nanoTime();
+            stats.waiting += start - waitStart;
+            if (parameterSource != null)
+                slot.rdbmsPf.bindParameters(binder, parameterSource.next());
+            slot.rdbmsPf.executeQuery();
+            long executed = System.nanoTime();
+            stats.busy += executed - start;
+            stats.executions++;
+            slot.queued = executed;
+            queue.put(slot);
+            stats.blocked += System.nanoTime() - executed;
+        }
+        // the connection is closed only when its last result is read
+        slot.free.acquire();
+        return null;
+    }
+
+    private Void decode(BlockingQueue<Slot> queue, Integer rowIndex, StageStats stats) throws InterruptedException {
+        TimedConsumer consumer = new TimedConsumer(fetchMode.newConsumer());
+        while (true) {
+            long waitStart = System.nanoTime();
+            Slot slot = queue.take();
+            long start = System.nanoTime();
+            stats.waiting += start - waitStart;
+            if (slot == END)
+                break;
+            stats.queueTimes.record(start - slot.queued);
+            try {
+                stats.rows += slot.rdbmsPf.fetchResult(rowIndex, consumer);
+            } finally {
+                slot.free.release();
+            }
+            stats.busy += System.nanoTime() - start;
+            stats.executions++;
+        }
+        stats.decoding = consumer.time;
+        return null;
+    }
+
+    // fails as soon as a decode thread fails, as the execute stage would wait for it forever
+    private static void await(Future<Void> future, List<Future<Void>> decoders) throws InterruptedException {
+        while (true) {
+            try {
+                future.get(100, TimeUnit.MILLISECONDS);
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Pipeline stage failed!", e.getCause());
+            } catch (TimeoutException e) {
+                for (Future<Void> decoder : decoders) {
+                    if (decoder.isDone())
+                        await(decoder);
+                }
+            }
+        }
+    }
+
+    private static void await(Future<Void> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Pipeline stage failed!", e.getCause());
+        }
+    }
+
+    private static StageStats merge(List<StageStats> stats) {
+        StageStats all = new StageStats();
+        stats.forEach(all::merge);
+        return all;
+    }
+
+    private void report(List<Slot> slots, StageStats execute, StageStats decode, long elapsed) {
+        double seconds = elapsed / 1e9;
+        double executeTime = (double) connections * elapsed;
+        double decodeTime = (double) decodeThreads * elapsed;
+        double decodeBusy = decode.busy / decodeTime;
+        double executeBusy = execute.busy / executeTime;
+        LOGGER.info("Pipeline Result...");
+        LOGGER.info("Elapsed (s): " + scale(seconds, 1) + ", Executions[" + decode.executions + "], Rows["
+                + decode.rows + "], Throughput: " + scale(decode.executions / seconds, 1) + " queries/s, "
+                + scale(decode.rows / seconds, 1) + " rows/s");
+        LOGGER.info("Execute Stage (" + connections + " Connections): Busy[" + percent(executeBusy)
+                + "], Waiting for Fetch[" + percent(execute.waiting / executeTime) + "], Blocked on Queue["
+                + percent(execute.blocked / executeTime) + "]");
+        LOGGER.info("Fetch and Decode Stage (" + decodeThreads + " Threads): Busy[" + percent(decodeBusy)
+                + "] of which Decoding[" + percent(decode.decoding / decodeTime) + "], Idle["
+                + percent(decode.waiting / decodeTime) + "]");
+        LOGGER.info("Queue Wait Times (ms): " + decode.queueTimes.summary());
+        Metrics metrics = new Metrics();
+        for (Slot slot : slots) {
+            metrics.merge(slot.metrics);
+        }
+        metrics.forEach((phase, histogram) -> LOGGER.info(phase.getLabel() + " Times (ms): " + histogram.summary()));
+        if (decodeBusy >= SATURATED)
+            LOGGER.info("The client is the bottleneck: the fetch and decode stage is busy " + percent(decodeBusy)
+                    + " of the time, " + (decode.decoding > decode.busy / 2 ? "mostly decoding the column values"
+                            : "mostly reading the rows from the driver")
+                    + ". Add jdbc.decodeThreads, a larger jdbc.fetchSize or a lighter jdbc.fetchMode.");
+        else if (executeBusy >= SATURATED)
+            LOGGER.info("The database is the bottleneck: the connections are executing " + percent(executeBusy)
+                    + " of the time while the fetch and decode stage idles. Add connections with jdbc.pipeline if"
+                    + " the database has spare capacity.");
+        else
+            LOGGER.info("Neither stage is saturated, increase jdbc.pipeline to put more queries in flight.");
+    }
+
+    private static String percent(double share) {
+        return scale(100 * share, 1) + "%";
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
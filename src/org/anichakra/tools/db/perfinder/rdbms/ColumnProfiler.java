@@ -0,0 +1,270 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Profiles the cost of reading each column. The rows take turns reading the
+ * columns through the getter suited to their SQL type, streaming LOBs, and
+ * through getObject, so each column is timed both ways on the same data
+ * without reading a value twice. The LOBs returned by getObject are read
+ * through their streams as well, so both ways read the whole value. The times
+ * are corrected for the cost of reading the clock, and the sizes of the values
+ * are taken from the typed reads.
+ */
+public class ColumnProfiler implements RowConsumer {
+    private static final int BUFFER_SIZE = 8192;
+
+    enum Getter {
+        BOOLEAN, INT, LONG, DOUBLE, DECIMAL, DATE, TIME, TIMESTAMP, STRING, BYTES, CHARACTER_STREAM, BINARY_STREAM,
+        OBJECT;
+
+        static Getter of(int sqlType, int precision, int scale) {
+            switch (sqlType) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return BYTES;
+            case Types.CLOB:
+            case Types.NCLOB:
+                return CHARACTER_STREAM;
+            case Types.BLOB:
+                return BINARY_STREAM;
+            default:
+                return valueOf(ColumnarResult.Kind.of(sqlType, precision, scale).name());
+            }
+        }
+    }
+
+    static class Column {
+        final String name;
+        final String typeName;
+        final Getter getter;
+        long typedTime;
+        long typedCount;
+        long objectTime;
+        long objectCount;
+        long bytes;
+        long nulls;
+
+        Column(String name, String typeName, Getter getter) {
+            this.name = name;
+            this.typeName = typeName;
+            this.getter = getter;
+        }
+
+        double getTypedNanos() {
+            return typedCount == 0 ? 0 : (double) typedTime / typedCount;
+        }
+
+        double getObjectNanos() {
+            return objectCount == 0 ? 0 : (double) objectTime / objectCount;
+        }
+    }
+
+    private final long clockCost = getClockCost();
+    private final char[] chars = new char[BUFFER_SIZE];
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private Column[] columns = new Column[0];
+    private long rows;
+
+    // the median of the time between two consecutive readings of the clock
+    private static long getClockCost() {
+        long[] costs = new long[1001];
+        for (int i = 0; i < costs.length; i++) {
+            long start = System.nanoTime();
+            costs[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(costs);
+        return costs[costs.length / 2];
+    }
+
+    @Override
+    public void begin(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        Column[] next = new Column[count];
+        boolean same = columns.length == count;
+        for (int i = 0; i < count; i++) {
+            next[i] = new Column(metaData.getColumnName(i + 1), metaData.getColumnTypeName(i + 1),
+                    Getter.of(metaData.getColumnType(i + 1), metaData.getPrecision(i + 1), metaData.getScale(i + 1)));
+            same = same && columns[i].name.equals(next[i].name) && columns[i].typeName.equals(next[i].typeName)
+                    && columns[i].getter == next[i].getter;
+        }
+        if (!same) {
+            columns = next;
+            rows = 0;
+        }
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        boolean typed = (rows++ & 1) == 0;
+        for (int i = 0; i < columns.length; i++) {
+            Column column = columns[i];
+            long start = System.nanoTime();
+            long size = typed ? read(rs, i + 1, column.getter) : readObject(rs, i + 1);
+            long time = Math.max(0, System.nanoTime() - start - clockCost);
+            if (typed) {
+                column.typedTime += time;
+                column.typedCount++;
+                if (size < 0)
+                    column.nulls++;
+                else
+                    column.bytes += size;
+            } else {
+                column.objectTime += time;
+                column.objectCount++;
+            }
+        }
+    }
+
+    // reads the value through the getter and returns its size in bytes, or -1 for null
+    private long read(ResultSet rs, int index, Getter getter) throws SQLException {
+        switch (getter) {
+        case BOOLEAN:
+            rs.getBoolean(index);
+            return rs.wasNull() ? -1 : 1;
+        case INT:
+            rs.getInt(index);
+            return rs.wasNull() ? -1 : 4;
+        case LONG:
+            rs.getLong(index);
+            return rs.wasNull() ? -1 : 8;
+        case DOUBLE:
+            rs.getDouble(index);
+            return rs.wasNull() ? -1 : 8;
+        case DECIMAL:
+            BigDecimal decimal = rs.getBigDecimal(index);
+            return decimal == null ? -1 : decimal.unscaledValue().bitLength() / 8 + 1;
+        case DATE:
+            return rs.getDate(index) == null ? -1 : 8;
+        case TIME:
+            return rs.getTime(index) == null ? -1 : 8;
+        case TIMESTAMP:
+            return rs.getTimestamp(index) == null ? -1 : 12;
+        case STRING:
+            String string = rs.getString(index);
+            return string == null ? -1 : 2L * string.length();
+        case BYTES:
+            byte[] value = rs.getBytes(index);
+            return value == null ? -1 : value.length;
+        case CHARACTER_STREAM:
+            try (Reader reader = rs.getCharacterStream(index)) {
+                if (reader == null)
+                    return -1;
+                long size = 0;
+                for (int read; (read = reader.read(chars)) >= 0;)
+                    size += 2L * read;
+                return size;
+            } catch (IOException e) {
+                throw new SQLException("Cannot read column " + index + "!", e);
+            }
+        case BINARY_STREAM:
+            try (InputStream in = rs.getBinaryStream(index)) {
+                if (in == null)
+                    return -1;
+                long size = 0;
+                for (int read; (read = in.read(bytes)) >= 0;)
+                    size += read;
+                return size;
+            } catch (IOException e) {
+                throw new SQLException("Cannot read column " + index + "!", e);
+            }
+        default:
+            return rs.getObject(index) == null ? -1 : 0;
+        }
+    }
+
+    // reads the value through getObject, streaming the LOBs it returns, and returns -1 for null
+    private long readObject(ResultSet rs, int index) throws SQLException {
+        Object value = rs.getObject(index);
+        if (value == null)
+            return -1;
+        try {
+            if (value instanceof Clob) {
+                try (Reader reader = ((Clob) value).getCharacterStream()) {
+                    while (reader.read(chars) >= 0)
+                        ;
+                }
+            } else if (value instanceof Blob) {
+                try (InputStream in = ((Blob) value).getBinaryStream()) {
+                    while (in.read(bytes) >= 0)
+                        ;
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot read column " + index + "!", e);
+        }
+        return 0;
+    }
+
+    public void report(Logger logger) {
+        if (rows < 2)
+            return;
+        double typedTotal = 0;
+        double objectTotal = 0;
+        for (Column column : columns) {
+            typedTotal += column.getTypedNanos();
+            objectTotal += column.getObjectNanos();
+        }
+        String[] headers = { "Column", "SQL Type", "Getter", "Nulls %", "Avg Size (B)", "Typed (ns)", "getObject (ns)",
+                "Speedup", "Share %" };
+        List<String[]> table = new ArrayList<>();
+        Map<String, double[]> types = new LinkedHashMap<>();
+        for (Column column : columns) {
+            long values = column.typedCount - column.nulls;
+            table.add(new String[] { column.name, column.typeName, column.getter.name().toLowerCase(),
+                    scale(100.0 * column.nulls / Math.max(1, column.typedCount), 1),
+                    values == 0 ? "-" : scale((double) column.bytes / values, 1), scale(column.getTypedNanos(), 1),
+                    scale(column.getObjectNanos(), 1), speedup(column.getObjectNanos(), column.getTypedNanos()),
+                    scale(100 * column.getTypedNanos() / Math.max(1, typedTotal), 1) });
+            double[] type = types.computeIfAbsent(column.typeName, name -> new double[3]);
+            type[0]++;
+            type[1] += column.getTypedNanos();
+            type[2] += column.getObjectNanos();
+        }
+        StringWriter columnTable = new StringWriter();
+        new TableRenderer(columnTable, Long.MAX_VALUE, Integer.MAX_VALUE).render(headers, table);
+        logger.info("Column Decode Profile of " + rows + " Rows (times in ns per value, corrected by " + clockCost
+                + " ns of clock reading)..." + System.lineSeparator() + columnTable);
+
+        List<String[]> typeTable = new ArrayList<>();
+        for (Map.Entry<String, double[]> type : types.entrySet()) {
+            double[] times = type.getValue();
+            typeTable.add(new String[] { type.getKey(), String.valueOf((int) times[0]), scale(times[1], 1),
+                    scale(times[2], 1), speedup(times[2], times[1]),
+                    scale(100 * times[1] / Math.max(1, typedTotal), 1) });
+        }
+        StringWriter typeSummary = new StringWriter();
+        new TableRenderer(typeSummary, Long.MAX_VALUE, Integer.MAX_VALUE).render(
+                new String[] { "SQL Type", "Columns", "Typed (ns/row)", "getObject (ns/row)", "Speedup", "Share %" },
+                typeTable);
+        logger.info("Decode Cost by Type..." + System.lineSeparator() + typeSummary);
+        logger.info("Decoding a Row takes " + scale(typedTotal, 1) + " ns with the typed getters and "
+                + scale(objectTotal, 1) + " ns with getObject (" + speedup(objectTotal, typedTotal) + ")");
+    }
+
+    private static String speedup(double object, double typed) {
+        return typed > 0 ? scale(object / typed, 2) + "x" : "-";
+    }
+
+    private static String scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).toPlainString();
+    }
+}
@@ -0,0 +1,335 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Keeps fetched rows column by column, with one growable primitive array per
+ * numeric or temporal column, a shared character buffer per string column and
+ * a null bitmap, filled through the typed getters. Timestamps keep their
+ * epoch milliseconds and their nanoseconds. The arrays are kept across
+ * fetches, so a reused instance allocates close to nothing once it has grown.
+ */
+public class ColumnarResult implements RowConsumer {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    public enum Kind {
+        BOOLEAN, INT, LONG, DOUBLE, DECIMAL, DATE, TIME, TIMESTAMP, STRING, OBJECT;
+
+        public boolean isNumeric() {
+            return this == INT || this == LONG || this == DOUBLE || this == DECIMAL;
+        }
+
+        static Kind of(int sqlType, int precision, int scale) {
+            switch (sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return INT;
+            case Types.BIGINT:
+                return LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return scale == 0 && precision > 0 && precision <= 18 ? LONG : DECIMAL;
+            case Types.DATE:
+                return DATE;
+            case Types.TIME:
+                return TIME;
+            case Types.TIMESTAMP:
+                return TIMESTAMP;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            default:
+                return OBJECT;
+            }
+        }
+    }
+
+    static class Column {
+        final String name;
+        final Kind kind;
+        int[] ints;
+        long[] longs;
+        int[] nanos;
+        double[] doubles;
+        char[] chars;
+        int[] ends;
+        Object[] objects;
+        long[] nulls = new long[(INITIAL_CAPACITY >> 6) + 1];
+
+        Column(String name, Kind kind) {
+            this.name = name;
+            this.kind = kind;
+            switch (kind) {
+            case BOOLEAN:
+            case INT:
+                ints = new int[INITIAL_CAPACITY];
+                break;
+            case LONG:
+            case DATE:
+            case TIME:
+                longs = new long[INITIAL_CAPACITY];
+                break;
+            case TIMESTAMP:
+                longs = new long[INITIAL_CAPACITY];
+                nanos = new int[INITIAL_CAPACITY];
+                break;
+            case DOUBLE:
+                doubles = new double[INITIAL_CAPACITY];
+                break;
+            case DECIMAL:
+            case STRING:
+                chars = new char[INITIAL_CAPACITY * 8];
+                ends = new int[INITIAL_CAPACITY];
+                break;
+            default:
+                objects = new Object[INITIAL_CAPACITY];
+            }
+        }
+
+        void grow(int capacity) {
+            if (ints != null)
+                ints = Arrays.copyOf(ints, capacity);
+            if (longs != null)
+                longs = Arrays.copyOf(longs, capacity);
+            if (nanos != null)
+                nanos = Arrays.copyOf(nanos, capacity);
+            if (doubles != null)
+                doubles = Arrays.copyOf(doubles, capacity);
+            if (ends != null)
+                ends = Arrays.copyOf(ends, capacity);
+            if (objects != null)
+                objects = Arrays.copyOf(objects, capacity);
+            nulls = Arrays.copyOf(nulls, (capacity >> 6) + 1);
+        }
+
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            boolean isNull;
+            switch (kind) {
+            case BOOLEAN:
+                ints[row] = rs.getBoolean(index) ? 1 : 0;
+                isNull = rs.wasNull();
+                break;
+            case INT:
+                ints[row] = rs.getInt(index);
+                isNull = rs.wasNull();
+                break;
+            case LONG:
+                longs[row] = rs.getLong(index);
+                isNull = rs.wasNull();
+                break;
+            case DOUBLE:
+                doubles[row] = rs.getDouble(index);
+                isNull = rs.wasNull();
+                break;
+            case DATE:
+                Date date = rs.getDate(index);
+                isNull = date == null;
+                longs[row] = isNull ? 0 : date.getTime();
+                break;
+            case TIME:
+                Time time = rs.getTime(index);
+                isNull = time == null;
+                longs[row] = isNull ? 0 : time.getTime();
+                break;
+            case TIMESTAMP:
+                Timestamp timestamp = rs.getTimestamp(index);
+                isNull = timestamp == null;
+                longs[row] = isNull ? 0 : timestamp.getTime();
+                nanos[row] = isNull ? 0 : timestamp.getNanos();
+                break;
+            case DECIMAL:
+                BigDecimal decimal = rs.getBigDecimal(index);
+                isNull = decimal == null;
+                append(isNull ? null : decimal.toPlainString(), row);
+                break;
+            case STRING:
+                String string = rs.getString(index);
+                isNull = string == null;
+                append(string, row);
+                break;
+            default:
+                objects[row] = rs.getObject(index);
+                isNull = objects[row] == null;
+            }
+            if (isNull)
+                nulls[row >> 6] |= 1L << row;
+            else
+                nulls[row >> 6] &= ~(1L << row);
+        }
+
+        private void append(String value, int row) {
+            int start = row == 0 ? 0 : ends[row - 1];
+            int length = value == null ? 0 : value.length();
+            if (start + length > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, start + length));
+            if (length > 0)
+                value.getChars(0, length, chars, start);
+            ends[row] = start + length;
+        }
+    }
+
+    private final int rowLimit;
+    private Column[] columns;
+    private int capacity;
+    private int rowCount;
+    private long totalRowCount;
+
+    public ColumnarResult() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public ColumnarResult(int rowLimit) {
+        this.rowLimit = rowLimit;
+    }
+
+    @Override
+    public void begin(ResultSetMetaData metaData) throws SQLException {
+        rowCount = 0;
+        totalRowCount = 0;
+        int columnCount = metaData.getColumnCount();
+        if (columns != null && columns.length == columnCount) {
+            boolean same = true;
+            for (int i = 0; i < columnCount && same; i++) {
+                same = columns[i].name.equals(metaData.getColumnName(i + 1)) && columns[i].kind == Kind
+                        .of(metaData.getColumnType(i + 1), metaData.getPrecision(i + 1), metaData.getScale(i + 1));
+            }
+            if (same) {
+                for (Column column : columns) {
+                    if (column.objects != null)
+                        Arrays.fill(column.objects, null);
+                }
+                return;
+            }
+        }
+        columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = new Column(metaData.getColumnName(i + 1),
+                    Kind.of(metaData.getColumnType(i + 1), metaData.getPrecision(i + 1), metaData.getScale(i + 1)));
+        }
+        capacity = INITIAL_CAPACITY;
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        totalRowCount++;
+        if (rowCount >= rowLimit) {
+            for (int i = 1; i <= columns.length; i++) {
+                rs.getObject(i);
+            }
+            return;
+        }
+        if (rowCount == capacity) {
+            if (capacity == MAX_CAPACITY)
+                throw new RuntimeException("Cannot keep more than " + MAX_CAPACITY + " rows, set jdbc.maxRows!");
+            capacity = capacity > MAX_CAPACITY >> 1 ? MAX_CAPACITY : capacity << 1;
+            for (Column column : columns) {
+                column.grow(capacity);
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, rowCount);
+        }
+        rowCount++;
+    }
+
+    public int getColumnCount() {
+        return columns == null ? 0 : columns.length;
+    }
+
+    public String getColumnName(int column) {
+        return columns[column].name;
+    }
+
+    public Kind getKind(int column) {
+        return columns[column].kind;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getTotalRowCount() {
+        return totalRowCount;
+    }
+
+    public boolean isNull(int row, int column) {
+        return (columns[column].nulls[row >> 6] & (1L << row)) != 0;
+    }
+
+    public int getInt(int row, int column) {
+        return columns[column].ints[row];
+    }
+
+    public long getLong(int row, int column) {
+        return columns[column].longs[row];
+    }
+
+    public int getNanos(int row, int column) {
+        return columns[column].nanos[row];
+    }
+
+    public double getDouble(int row, int column) {
+        return columns[column].doubles[row];
+    }
+
+    public String getString(int row, int column) {
+        if (isNull(row, column))
+            return null;
+        Column c = columns[column];
+        if (c.chars == null)
+            return String.valueOf(getValue(row, column));
+        int start = row == 0 ? 0 : c.ends[row - 1];
+        return new String(c.chars, start, c.ends[row] - start);
+    }
+
+    public Object getValue(int row, int column) {
+        if (isNull(row, column))
+            return null;
+        Column c = columns[column];
+        switch (c.kind) {
+        case BOOLEAN:
+            return c.ints[row] != 0;
+        case INT:
+            return c.ints[row];
+        case LONG:
+            return c.longs[row];
+        case DOUBLE:
+            return c.doubles[row];
+        case DATE:
+            return new Date(c.longs[row]);
+        case TIME:
+            return new Time(c.longs[row]);
+        case TIMESTAMP:
+            Timestamp timestamp = new Timestamp(c.longs[row]);
+            timestamp.setNanos(c.nanos[row]);
+            return timestamp;
+        case DECIMAL:
+            return new BigDecimal(getString(row, column));
+        case STRING:
+            return getString(row, column);
+        default:
+            return c.objects[row];
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Streams parameter tuples from a CSV file, one tuple per line, starting over
+ * at the end of the file. In random order the tuples are drawn from a bounded
+ * shuffle window refilled from the stream, so large files are never loaded as
+ * a whole. Empty fields are bound as null, blank lines and lines starting with
+ * # are skipped.
+ */
+public class CsvParameterSource implements ParameterSource {
+    private static final int RANDOM_WINDOW = 10_000;
+
+    private final Path path;
+    private final Random random;
+    private BufferedReader reader;
+    private String[] pending;
+    private String[][] window;
+    private int windowSize;
+
+    public CsvParameterSource(Path path, boolean randomOrder) {
+        this.path = path;
+        this.random = randomOrder ? new Random() : null;
+        open();
+        if (random == null) {
+            pending = read();
+        } else {
+            window = new String[RANDOM_WINDOW][];
+            String[] tuple;
+            while (windowSize < RANDOM_WINDOW && (tuple = read()) != null) {
+                window[windowSize++] = tuple;
+            }
+            if (windowSize < RANDOM_WINDOW)
+                closeReader(); // the whole file fits in the window
+        }
+        if (pending == null && windowSize == 0)
+            throw new IllegalArgumentException("No parameters found in " + path + "!");
+    }
+
+    @Override
+    public String[] next() {
+        if (random == null) {
+            String[] tuple = pending != null ? pending : readCycling();
+            pending = null;
+            return tuple;
+        }
+        int index = random.nextInt(windowSize);
+        String[] tuple = window[index];
+        if (reader != null)
+            window[index] = readCycling();
+        return tuple;
+    }
+
+    private String[] readCycling() {
+        String[] tuple = read();
+        if (tuple == null) {
+            closeReader();
+            open();
+            tuple = read();
+        }
+        return tuple;
+    }
+
+    private String[] read() {
+        if (reader == null)
+            return null;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() > 0 && !line.startsWith("#"))
+                    return parse(line);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read parameters from " + path + "!", e);
+        }
+    }
+
+    private void open() {
+        try {
+            reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open parameter file " + path + "!", e);
+        }
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // nothing can be done
+            }
+            reader = null;
+        }
+    }
+
+    static String[] parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(value(field, wasQuoted));
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(value(field, wasQuoted));
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    private static String value(StringBuilder field, boolean wasQuoted) {
+        if (wasQuoted)
+            return field.toString();
+        String value = field.toString().trim();
+        return value.length() == 0 ? null : value;
+    }
+
+    @Override
+    public void close() {
+        closeReader();
+    }
+}
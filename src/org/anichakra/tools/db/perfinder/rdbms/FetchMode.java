@@ -0,0 +1,32 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+public enum FetchMode {
+    MATERIALIZE, COLUMNAR, STREAM, PROFILE;
+
+    public static FetchMode of(String name) {
+        if (name == null || name.trim().length() == 0)
+            return MATERIALIZE;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown jdbc.fetchMode: " + name, e);
+        }
+    }
+
+    public boolean isForwardOnly() {
+        return this == STREAM;
+    }
+
+    public RowConsumer newConsumer() {
+        switch (this) {
+        case COLUMNAR:
+            return new ColumnarResult();
+        case STREAM:
+            return RowConsumer.discarding();
+        case PROFILE:
+            return new ColumnProfiler();
+        default:
+            return new ListRowConsumer();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+public class ListRowConsumer implements RowConsumer {
+    private String[] columns;
+    private List<Map<String, Object>> result;
+
+    @Override
+    public void begin(ResultSetMetaData metaData) throws SQLException {
+        columns = RdbmsPerfinder.getColumns(metaData);
+        result = new LinkedList<>();
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        result.add(RdbmsPerfinder.mapRow(rs, columns));
+    }
+
+    public List<Map<String, Object>> getResult() {
+        return result;
+    }
+}
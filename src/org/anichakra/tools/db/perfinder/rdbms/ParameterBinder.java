@@ -0,0 +1,102 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ParameterBinder {
+    private static final String DEFAULT_TYPE = "string";
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement pstmt, int index, String value) throws SQLException;
+    }
+
+    static class TypeObject {
+        final int sqlType;
+        final Binder binder;
+
+        TypeObject(int sqlType, Binder binder) {
+            this.sqlType = sqlType;
+            this.binder = binder;
+        }
+    }
+
+    static Map<String, TypeObject> typeMap = new HashMap<>();
+    static {
+        typeMap.put("int", new TypeObject(Types.INTEGER, (p, i, v) -> p.setInt(i, Integer.parseInt(v))));
+        typeMap.put("long", new TypeObject(Types.BIGINT, (p, i, v) -> p.setLong(i, Long.parseLong(v))));
+        typeMap.put("double", new TypeObject(Types.DOUBLE, (p, i, v) -> p.setDouble(i, Double.parseDouble(v))));
+        typeMap.put("float", new TypeObject(Types.REAL, (p, i, v) -> p.setFloat(i, Float.parseFloat(v))));
+        typeMap.put("bool", new TypeObject(Types.BOOLEAN, (p, i, v) -> p.setBoolean(i, Boolean.parseBoolean(v))));
+        typeMap.put("short", new TypeObject(Types.SMALLINT, (p, i, v) -> p.setShort(i, Short.parseShort(v))));
+        typeMap.put("string", new TypeObject(Types.VARCHAR, (p, i, v) -> p.setString(i, v)));
+        typeMap.put("decimal", new TypeObject(Types.DECIMAL, (p, i, v) -> p.setBigDecimal(i, new BigDecimal(v))));
+        typeMap.put("date", new TypeObject(Types.DATE, (p, i, v) -> p.setDate(i, Date.valueOf(v))));
+        typeMap.put("time", new TypeObject(Types.TIME, (p, i, v) -> p.setTime(i, Time.valueOf(v))));
+        typeMap.put("timestamp",
+                new TypeObject(Types.TIMESTAMP, (p, i, v) -> p.setTimestamp(i, Timestamp.valueOf(v))));
+    }
+
+    private final TypeObject[] types;
+
+    private ParameterBinder(TypeObject[] types) {
+        this.types = types;
+    }
+
+    public static ParameterBinder compile(String... types) {
+        TypeObject[] compiled = new TypeObject[types.length];
+        for (int i = 0; i < types.length; i++) {
+            String type = types[i] == null || types[i].trim().length() == 0 ? DEFAULT_TYPE : types[i].trim();
+            compiled[i] = typeMap.get(type.toLowerCase());
+            if (compiled[i] == null)
+                throw new IllegalArgumentException("Unknown parameter type: " + type + "! Known types are "
+                        + typeMap.keySet());
+        }
+        return new ParameterBinder(compiled);
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public void bind(PreparedStatement pstmt, String[] values) throws SQLException {
+        if (values.length != types.length)
+            throw new IllegalArgumentException(
+                    "Expected " + types.length + " parameters but found " + values.length + "!");
+        for (int i = 0; i < types.length; i++) {
+            if (values[i] == null)
+                pstmt.setNull(i + 1, types[i].sqlType);
+            else
+                types[i].binder.bind(pstmt, i + 1, values[i]);
+        }
+    }
+
+    // splits the value:type tokens of jdbc.parameters, the type defaults to string and a suffix
+    // that is not a type name, such as the seconds of a time, is kept in the value
+    public static String[][] split(String[] parameters) {
+        String[] values = new String[parameters.length];
+        String[] types = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            int separator = parameters[i].lastIndexOf(':');
+            String suffix = separator >= 0 ? parameters[i].substring(separator + 1).trim() : "";
+            if (typeMap.containsKey(suffix.toLowerCase())) {
+                values[i] = parameters[i].substring(0, separator);
+                types[i] = suffix;
+            } else if (suffix.matches("[A-Za-z]+")) {
+                throw new IllegalArgumentException("Unknown parameter type: " + suffix + " in " + parameters[i]
+                        + "! Known types are " + typeMap.keySet());
+            } else {
+                values[i] = parameters[i];
+                types[i] = DEFAULT_TYPE;
+            }
+        }
+        return new String[][] { values, types };
+    }
+}
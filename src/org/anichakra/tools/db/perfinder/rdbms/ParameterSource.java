@@ -0,0 +1,45 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@FunctionalInterface
+public interface ParameterSource extends AutoCloseable {
+    String SEQUENCE_NUMBER = "{n}";
+
+    String[] next();
+
+    @Override
+    default void close() {
+    }
+
+    static ParameterSource fixed(String[] values) {
+        return () -> values;
+    }
+
+    // replaces {n} in the values with the number of the tuple, starting from 1
+    static ParameterSource sequence(String[] values) {
+        AtomicLong number = new AtomicLong();
+        return () -> {
+            String n = Long.toString(number.incrementAndGet());
+            String[] tuple = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                tuple[i] = values[i] == null ? null : values[i].replace(SEQUENCE_NUMBER, n);
+            }
+            return tuple;
+        };
+    }
+
+    static ParameterSource synchronizedSource(ParameterSource source) {
+        return new ParameterSource() {
+            @Override
+            public synchronized String[] next() {
+                return source.next();
+            }
+
+            @Override
+            public void close() {
+                source.close();
+            }
+        };
+    }
+}
@@ -1,7 +1,5 @@
 package org.anichakra.tools.db.perfinder.rdbms;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -16,44 +14,26 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.function.Function;
 import java.util.logging.Logger;
 
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+import org.anichakra.tools.db.perfinder.stats.Metrics.Phase;
+
 public class RdbmsPerfinder implements AutoCloseable {
+    private static final String DEFAULT_STATEMENT = "";
 
     Connection connection = null;
     PreparedStatement pstmt = null;
+    Map<String, PreparedStatement> statements = new HashMap<>();
     ResultSet rs = null;
     DriverProxy shim = null;
-
-    static class TypeObject {
-        Class<?> type;
-        Class<?> clazz;
-        String name;
-
-        Function<String, ?> function;
-
-        public TypeObject(String name, Class<?> type, Function<String, ?> function) {
-            this.type = type;
-            this.name = name;
-            this.function = function;
-        }
-    }
-
-    static Map<String, TypeObject> typeMap = new HashMap<>();
-    static {
-        typeMap.put("int", new TypeObject("Int", Integer.TYPE, c -> Integer.valueOf(c)));
-        typeMap.put("long", new TypeObject("Long", Long.TYPE, c -> Long.valueOf(c)));
-        typeMap.put("double", new TypeObject("Double", Double.TYPE, c -> Double.valueOf(c)));
-        typeMap.put("float", new TypeObject("Float", Float.TYPE, c -> Float.valueOf(c)));
-        typeMap.put("bool", new TypeObject("Boolean", Boolean.TYPE, c -> Boolean.valueOf(c)));
-        typeMap.put("short", new TypeObject("Short", Short.TYPE, c -> Short.valueOf(c)));
-        typeMap.put("string", new TypeObject("String", String.class, c -> new String(c)));
-    }
+    int resultSetType = ResultSet.TYPE_SCROLL_SENSITIVE;
+    Metrics metrics = new Metrics();
+    Histogram rowTimes = new Histogram();
 
     static class DriverProxy implements Driver {
         private Driver driver;
@@ -122,69 +102,220 @@ public class RdbmsPerfinder implements AutoCloseable {
     public void createConnection(String connectionUrl, String username, String password) {
         if (connectionUrl == null || connectionUrl.trim().length() == 0)
             throw new IllegalArgumentException("ConnectionUrl name not mentioned in jdbc.driver!");
+        closeConnection();
         try {
-            if (username == null || username.trim().length() == 0)
+            long time = System.nanoTime();
+            if (shim != null)
+                connection = connect(connectionUrl.trim(), username, password);
+            else if (username == null || username.trim().length() == 0)
                 connection = DriverManager.getConnection(connectionUrl.trim());
             else
                 connection = DriverManager.getConnection(connectionUrl.trim(), username.trim(), password);
+            metrics.record(Phase.CONNECT, System.nanoTime() - time);
         } catch (SQLException e) {
             throw new RuntimeException("Cannot create Connection!", e);
         }
     }
 
+    // connects through the loaded driver, as DriverManager picks the first registered driver accepting the URL
+    private Connection connect(String connectionUrl, String username, String password) throws SQLException {
+        Properties info = new Properties();
+        if (username != null && username.trim().length() > 0) {
+            info.setProperty("user", username.trim());
+            if (password != null)
+                info.setProperty("password", password);
+        }
+        Connection connection = shim.connect(connectionUrl, info);
+        if (connection == null)
+            throw new SQLException("No suitable driver found for " + connectionUrl);
+        return connection;
+    }
+
+    public String getDriverVersion() {
+        assert connection != null : "Connection is null! Load JDBC Driver and create Connection First";
+        try {
+            return connection.getMetaData().getDriverName() + " " + connection.getMetaData().getDriverVersion();
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot read the Driver Version!", e);
+        }
+    }
+
     public void prepareStatement(String query, Integer fetchSize, Integer maxRows, String... parameters) {
+        closeStatement();
+        prepareNamedStatement(DEFAULT_STATEMENT, query, fetchSize, maxRows, parameters);
+    }
+
+    // prepares a statement along with the ones already prepared on the connection, and selects it
+    public void prepareNamedStatement(String name, String query, Integer fetchSize, Integer maxRows,
+            String... parameters) {
         if (query == null || query.trim().length() == 0)
             throw new IllegalArgumentException("query is not provided!");
         assert connection != null : "Connection is null! Load JDBC Driver and create Connection First";
+        close(statements.remove(name));
         try {
-            pstmt = connection.prepareStatement(query, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY);
-
-            if (parameters != null) {
-                setParameters(parameters, pstmt);
-            }
+            long time = System.nanoTime();
+            pstmt = connection.prepareStatement(query, resultSetType, ResultSet.CONCUR_READ_ONLY);
+            statements.put(name, pstmt);
             if (fetchSize != null)
                 pstmt.setFetchSize(fetchSize);
             if(maxRows!=null)
                 pstmt.setMaxRows(maxRows);
-        } catch (SQLException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            metrics.record(Phase.PREPARE, System.nanoTime() - time);
+
+            if (parameters != null) {
+                String[][] tuple = ParameterBinder.split(parameters);
+                ParameterBinder binder = ParameterBinder.compile(tuple[1]);
+                time = System.nanoTime();
+                binder.bind(pstmt, tuple[0]);
+                metrics.record(Phase.BIND, System.nanoTime() - time);
+            }
+        } catch (SQLException e) {
             throw new RuntimeException("Cannot create PreparedStatement!", e);
         }
     }
 
+    public void selectStatement(String name) {
+        PreparedStatement statement = statements.get(name);
+        if (statement == null)
+            throw new IllegalArgumentException("Statement " + name + " is not prepared!");
+        pstmt = statement;
+    }
+
+    public void bindParameters(ParameterBinder binder, String[] values) {
+        assert pstmt != null : "Prepare a Statement first!";
+        try {
+            long time = System.nanoTime();
+            binder.bind(pstmt, values);
+            metrics.record(Phase.BIND, System.nanoTime() - time);
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot bind parameters!", e);
+        }
+    }
+
     public void executeQuery() {
         assert pstmt != null : "Prepare a Statement first!";
         try {
+            long time = System.nanoTime();
             rs = pstmt.executeQuery();
+            metrics.record(Phase.EXECUTE, System.nanoTime() - time);
         } catch (SQLException e) {
             throw new RuntimeException("Cannot execute query!", e);
 
         }
     }
 
-    public List<Map<String, Object>> fetchResult(Integer rowIndex) {
+    public void setAutoCommit(boolean autoCommit) {
+        assert connection != null : "Connection is null! Load JDBC Driver and create Connection First";
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot set auto commit!", e);
+        }
+    }
 
-        List<Map<String, Object>> result = new LinkedList<>();
+    public void addBatch(ParameterBinder binder, String[] values) {
+        assert pstmt != null : "Prepare a Statement first!";
         try {
-            String[] columns = getColumns(rs);
-            if (rowIndex != null)
-                rs.absolute(rowIndex);
+            if (binder != null) {
+                long time = System.nanoTime();
+                binder.bind(pstmt, values);
+                metrics.record(Phase.BIND, System.nanoTime() - time);
+            }
+            pstmt.addBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot add batch!", e);
+        }
+    }
 
-         //   int count = 0;
-            while (rs.next()) {
-              //  if (maxRows != null && count >= maxRows)
-                 //   break;
-                Map<String, Object> row = mapRow(rs, columns);
-                result.add(row);
-              //  count++;
+    public int[] executeBatch() {
+        assert pstmt != null : "Prepare a Statement first!";
+        try {
+            long time = System.nanoTime();
+            int[] updateCounts = pstmt.executeBatch();
+            metrics.record(Phase.BATCH, System.nanoTime() - time);
+            return updateCounts;
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot execute batch!", e);
+        }
+    }
+
+    public void commit() {
+        assert connection != null : "Connection is null! Load JDBC Driver and create Connection First";
+        try {
+            long time = System.nanoTime();
+            connection.commit();
+            metrics.record(Phase.COMMIT, System.nanoTime() - time);
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot commit!", e);
+        }
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setForwardOnly(boolean forwardOnly) {
+        resultSetType = forwardOnly ? ResultSet.TYPE_FORWARD_ONLY : ResultSet.TYPE_SCROLL_SENSITIVE;
+    }
+
+    public List<Map<String, Object>> fetchResult(Integer rowIndex) {
+        ListRowConsumer consumer = new ListRowConsumer();
+        fetchResult(rowIndex, consumer);
+        return consumer.getResult();
+    }
+
+    public long fetchResult(Integer rowIndex, RowConsumer consumer) {
+        assert rs != null : "Execute the query first!";
+        long count = 0;
+        try {
+            long time = System.nanoTime();
+            consumer.begin(rs.getMetaData());
+            if (rowIndex != null && rowIndex > 0)
+                skip(rs, rowIndex); // counted in the fetch only
+            long firstRowStart = System.nanoTime();
+            boolean hasRow = rs.next();
+            long last = System.nanoTime();
+            if (hasRow)
+                metrics.record(Phase.FIRST_ROW, last - firstRowStart);
+            rowTimes.reset();
+            // each row is timed from its consumption to the move to the next row, reading the clock once per row
+            while (hasRow) {
+                consumer.accept(rs);
+                count++;
+                hasRow = rs.next();
+                long now = System.nanoTime();
+                rowTimes.record(now - last);
+                last = now;
             }
+            consumer.end();
             rs.close();
+            metrics.record(Phase.FETCH, System.nanoTime() - time);
+            if (count > 0)
+                metrics.merge(Phase.ROW, rowTimes);
         } catch (SQLException e) {
             throw new RuntimeException("Cannot fetch result!", e);
         }
-        return result;
+        return count;
+    }
+
+    private static void skip(ResultSet rs, int rowIndex) throws SQLException {
+        if (rs.getType() != ResultSet.TYPE_FORWARD_ONLY) {
+            try {
+                rs.absolute(rowIndex);
+                return;
+            } catch (SQLFeatureNotSupportedException e) {
+                // fall back to skipping rows one by one
+            }
+        }
+        for (int i = 0; i < rowIndex && rs.next(); i++)
+            ;
     }
 
-    private static Map<String, Object> mapRow(ResultSet rs, String[] columns) throws SQLException {
+    static Map<String, Object> mapRow(ResultSet rs, String[] columns) throws SQLException {
         Map<String, Object> record = new LinkedHashMap<>(columns.length);
         for (int i = 0; i < columns.length; i++) {
             record.put(columns[i], rs.getObject(i + 1));
@@ -192,8 +323,7 @@ public class RdbmsPerfinder implements AutoCloseable {
         return record;
     }
 
-    private static String[] getColumns(ResultSet rs) throws SQLException {
-        ResultSetMetaData rsmd = rs.getMetaData();
+    static String[] getColumns(ResultSetMetaData rsmd) throws SQLException {
         String[] columns = new String[rsmd.getColumnCount()];
         for (int i = 0; i < columns.length; i++) {
             columns[i] = rsmd.getColumnName(i + 1);
@@ -201,36 +331,37 @@ public class RdbmsPerfinder implements AutoCloseable {
         return columns;
     }
 
-    private static void setParameters(String[] parameters, PreparedStatement pstmt)
-            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        for (int i = 0; i < parameters.length; i++) {
-            String type = "string";
-            if (parameters[i].contains(":")) {
-                String[] tokens = parameters[i].split(":");
-                type = tokens[1];
-                parameters[i] = tokens[0];
-            }
-
-            Method method = PreparedStatement.class.getMethod("set" + typeMap.get(type).name, Integer.TYPE,
-                    typeMap.get(type).type);
-            method.invoke(pstmt, i + 1, typeMap.get(type).function.apply(parameters[i]));
+    private void closeStatement() {
+        for (PreparedStatement statement : statements.values()) {
+            close(statement);
         }
+        statements.clear();
+        pstmt = null;
     }
 
-    @Override
-    public void close() throws Exception {
-        if (pstmt != null && !pstmt.isClosed()) {
-            try {
-                pstmt.close();
-            } catch (SQLException e) {
-            }
+    private void close(PreparedStatement statement) {
+        if (statement == pstmt)
+            pstmt = null;
+        try {
+            if (statement != null && !statement.isClosed())
+                statement.close();
+        } catch (SQLException e) {
         }
-        if (connection != null && !connection.isClosed()) {
-            try {
+    }
+
+    private void closeConnection() {
+        closeStatement();
+        try {
+            if (connection != null && !connection.isClosed())
                 connection.close();
-            } catch (SQLException e) {
-            }
+        } catch (SQLException e) {
         }
+        connection = null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        closeConnection();
         if (shim != null) {
             DriverManager.deregisterDriver(shim);
         }
@@ -0,0 +1,34 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+public interface RowConsumer {
+
+    default void begin(ResultSetMetaData metaData) throws SQLException {
+    }
+
+    void accept(ResultSet rs) throws SQLException;
+
+    default void end() throws SQLException {
+    }
+
+    static RowConsumer discarding() {
+        return new RowConsumer() {
+            private int columnCount;
+
+            @Override
+            public void begin(ResultSetMetaData metaData) throws SQLException {
+                columnCount = metaData.getColumnCount();
+            }
+
+            @Override
+            public void accept(ResultSet rs) throws SQLException {
+                for (int i = 1; i <= columnCount; i++) {
+                    rs.getObject(i);
+                }
+            }
+        };
+    }
+}
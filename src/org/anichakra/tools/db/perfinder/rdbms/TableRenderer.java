@@ -0,0 +1,212 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes rows as a text table while they are fetched. The column widths are
+ * taken from the first {@link #SAMPLE_ROWS} rows, which are the only rows held
+ * in memory, and at least the display size in the metadata for the numeric and
+ * temporal columns. Longer values that follow are truncated, so the memory
+ * used does not depend on the number of rows.
+ */
+public class TableRenderer implements RowConsumer {
+    private static final int SAMPLE_ROWS = 100;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final char TRUNCATED = '~';
+
+    private final Writer writer;
+    private final long rowLimit;
+    private final int maxWidth;
+    private final StringBuilder line = new StringBuilder();
+    private String[] headers;
+    private boolean[] numeric;
+    private int[] minWidths;
+    private int[] widths;
+    private String[][] sample;
+    private int sampleCount;
+    private String[] values;
+    private long rowCount;
+
+    public TableRenderer(Writer writer, long rowLimit, int maxWidth) {
+        if (maxWidth < 2)
+            throw new IllegalArgumentException("maxWidth should be at least 2!");
+        this.writer = writer;
+        this.rowLimit = rowLimit;
+        this.maxWidth = maxWidth;
+    }
+
+    @Override
+    public void begin(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount];
+        boolean[] numbers = new boolean[columnCount];
+        int[] displaySizes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metaData.getColumnName(i + 1);
+            ColumnarResult.Kind kind = ColumnarResult.Kind.of(metaData.getColumnType(i + 1),
+                    metaData.getPrecision(i + 1), metaData.getScale(i + 1));
+            numbers[i] = kind.isNumeric();
+            if (kind != ColumnarResult.Kind.STRING && kind != ColumnarResult.Kind.OBJECT)
+                displaySizes[i] = metaData.getColumnDisplaySize(i + 1);
+        }
+        begin(names, numbers, displaySizes);
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        if (rowCount++ >= rowLimit)
+            return;
+        String[] row = widths == null ? new String[headers.length] : values;
+        for (int i = 0; i < row.length; i++) {
+            row[i] = String.valueOf(rs.getObject(i + 1));
+        }
+        row(row);
+    }
+
+    @Override
+    public void end() {
+        if (widths == null)
+            writeHeader();
+        writeLine();
+        if (rowCount > rowLimit)
+            write((rowCount - rowLimit) + " more rows not shown" + LINE_SEPARATOR);
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write output!", e);
+        }
+    }
+
+    public void render(ColumnarResult result) {
+        int columnCount = result.getColumnCount();
+        String[] names = new String[columnCount];
+        boolean[] numbers = new boolean[columnCount];
+        int[] valueLengths = new int[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            names[c] = result.getColumnName(c);
+            numbers[c] = result.getKind(c).isNumeric();
+            for (int r = 0; r < result.getRowCount() && r < rowLimit; r++) {
+                valueLengths[c] = Math.max(valueLengths[c], String.valueOf(result.getString(r, c)).length());
+            }
+        }
+        begin(names, numbers, valueLengths);
+        for (int r = 0; r < result.getRowCount() && r < rowLimit; r++) {
+            String[] row = widths == null ? new String[columnCount] : values;
+            for (int c = 0; c < columnCount; c++) {
+                row[c] = result.getString(r, c);
+            }
+            row(row);
+        }
+        rowCount = result.getTotalRowCount();
+        end();
+    }
+
+    // renders a small table of right aligned values, such as a report
+    public void render(String[] headers, List<String[]> rows) {
+        int[] valueLengths = new int[headers.length];
+        for (int r = 0; r < rows.size() && r < rowLimit; r++) {
+            for (int c = 0; c < headers.length; c++) {
+                valueLengths[c] = Math.max(valueLengths[c], String.valueOf(rows.get(r)[c]).length());
+            }
+        }
+        boolean[] alignRight = new boolean[headers.length];
+        Arrays.fill(alignRight, true);
+        begin(headers, alignRight, valueLengths);
+        for (int r = 0; r < rows.size() && r < rowLimit; r++) {
+            row(rows.get(r).clone());
+        }
+        rowCount = rows.size();
+        end();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private void begin(String[] names, boolean[] numbers, int[] lowerBounds) {
+        headers = names;
+        numeric = numbers;
+        minWidths = lowerBounds;
+        widths = null;
+        sample = new String[SAMPLE_ROWS][];
+        sampleCount = 0;
+        values = new String[names.length];
+        rowCount = 0;
+    }
+
+    private void row(String[] row) {
+        if (widths != null) {
+            writeRow(row, numeric);
+            return;
+        }
+        sample[sampleCount++] = row;
+        if (sampleCount == SAMPLE_ROWS)
+            writeHeader();
+    }
+
+    private void writeHeader() {
+        widths = new int[headers.length];
+        for (int c = 0; c < headers.length; c++) {
+            widths[c] = Math.max(headers[c].length(), minWidths[c]);
+            for (int r = 0; r < sampleCount; r++) {
+                widths[c] = Math.max(widths[c], String.valueOf(sample[r][c]).length());
+            }
+            widths[c] = Math.min(widths[c], maxWidth);
+        }
+        writeLine();
+        writeRow(headers, new boolean[headers.length]);
+        writeLine();
+        for (int r = 0; r < sampleCount; r++) {
+            writeRow(sample[r], numeric);
+        }
+        sample = null;
+    }
+
+    private void writeRow(String[] row, boolean[] alignRight) {
+        line.setLength(0);
+        for (int c = 0; c < row.length; c++) {
+            String value = String.valueOf(row[c]);
+            line.append('|');
+            if (value.length() > widths[c]) {
+                line.append(value, 0, widths[c] - 1).append(TRUNCATED);
+                continue;
+            }
+            if (!alignRight[c])
+                line.append(value);
+            for (int i = value.length(); i < widths[c]; i++) {
+                line.append(' ');
+            }
+            if (alignRight[c])
+                line.append(value);
+        }
+        line.append('|').append(LINE_SEPARATOR);
+        write(line);
+    }
+
+    private void writeLine() {
+        line.setLength(0);
+        int width = 1;
+        for (int w : widths) {
+            width += w + 1;
+        }
+        for (int i = 0; i < width; i++) {
+            line.append('-');
+        }
+        line.append(LINE_SEPARATOR);
+        write(line);
+    }
+
+    private void write(CharSequence text) {
+        try {
+            writer.append(text);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write output!", e);
+        }
+    }
+}
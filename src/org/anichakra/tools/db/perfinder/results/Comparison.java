@@ -0,0 +1,78 @@
+package org.anichakra.tools.db.perfinder.results;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.MannWhitney;
+
+/**
+ * Compares the total times of a test run with a baseline run. The run is a
+ * regression when a Mann-Whitney test finds its times greater than the
+ * baseline at {@link #SIGNIFICANCE} and its median is slower than the
+ * baseline by more than the threshold, so that a significant but negligible
+ * slowdown of a long run does not fail a build.
+ */
+public class Comparison {
+    private final static double SIGNIFICANCE = 0.01;
+
+    private final StoredRun baseline;
+    private final StoredRun run;
+    private final double threshold;
+
+    public Comparison(StoredRun baseline, StoredRun run, double threshold) {
+        this.baseline = baseline;
+        this.run = run;
+        this.threshold = threshold;
+    }
+
+    // reports the comparison and tells whether the run is a regression
+    public boolean report(Logger logger) {
+        logger.info("Comparing with Baseline: " + baseline.getName());
+        for (Map.Entry<String, String> setting : run.getSettings().entrySet()) {
+            String baselineSetting = baseline.getSettings().get(setting.getKey());
+            if (!Objects.equals(setting.getValue(), baselineSetting))
+                logger.warning("Setting " + setting.getKey() + " differs from the Baseline: " + baselineSetting
+                        + " -> " + setting.getValue());
+        }
+        run.getHistograms().forEach((name, histogram) -> {
+            Histogram before = baseline.getHistograms().get(name);
+            if (before != null && before.getCount() > 0 && histogram.getCount() > 0 && !StoredRun.TOTAL.equals(name))
+                logger.info(name + " p50 (ms): " + change(before, histogram, 50) + ", p99 (ms): "
+                        + change(before, histogram, 99));
+        });
+        Histogram before = baseline.getHistograms().get(StoredRun.TOTAL);
+        Histogram after = run.getHistograms().get(StoredRun.TOTAL);
+        if (before == null || after == null || before.getCount() == 0 || after.getCount() == 0) {
+            logger.warning("No total times to compare with the Baseline!");
+            return false;
+        }
+        MannWhitney test = new MannWhitney(after, before);
+        double slowdown = (double) after.getValueAtPercentile(50) / Math.max(1, before.getValueAtPercentile(50)) - 1;
+        logger.info("Total p50 (ms): " + change(before, after, 50) + ", p99 (ms): " + change(before, after, 99)
+                + ", Mann-Whitney: P(slower)[" + scale(test.getProbabilityGreater(), 3) + "], z[" + scale(test.getZ(), 2)
+                + "], p[" + BigDecimal.valueOf(test.getPValue()).round(new MathContext(3)) + "]");
+        boolean regression = test.getPValue() < SIGNIFICANCE && slowdown > threshold;
+        if (regression)
+            logger.severe("Regression: the Total Times are significantly slower than the Baseline, p50 by "
+                    + scale(100 * slowdown, 1) + "% (threshold " + scale(100 * threshold, 1) + "%)");
+        else
+            logger.info("No Regression against the Baseline");
+        return regression;
+    }
+
+    private static String change(Histogram before, Histogram after, double percentile) {
+        long from = before.getValueAtPercentile(percentile);
+        long to = after.getValueAtPercentile(percentile);
+        return Histogram.millis(from) + " -> " + Histogram.millis(to) + " ("
+                + (to >= from ? "+" : "") + scale(100.0 * (to - from) / Math.max(1, from), 1) + "%)";
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
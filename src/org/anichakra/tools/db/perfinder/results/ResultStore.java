@@ -0,0 +1,89 @@
+package org.anichakra.tools.db.perfinder.results;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps the test runs of each query in an append-only file in a directory,
+ * named by a hash of the query with its whitespace normalized. The first line
+ * of a file is the query as a comment.
+ */
+public class ResultStore {
+    public static final String LAST = "last";
+    private static final String EXTENSION = ".results";
+
+    private final Path directory;
+
+    public ResultStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getFile(String query) {
+        return directory.resolve(hash(normalize(query)) + EXTENSION);
+    }
+
+    public void append(String query, StoredRun run) {
+        Path file = getFile(query);
+        try {
+            Files.createDirectories(directory);
+            boolean created = !Files.exists(file);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (created) {
+                    writer.write("# " + normalize(query));
+                    writer.newLine();
+                }
+                writer.write(run.encode());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot store the test run in " + file + "!", e);
+        }
+    }
+
+    // the last stored run with the given label or time, or the last one of all for 'last'
+    public StoredRun findBaseline(String query, String baseline) {
+        Path file = getFile(query);
+        if (!Files.exists(file))
+            return null;
+        StoredRun found = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0 || line.startsWith("#"))
+                    continue;
+                StoredRun run = StoredRun.decode(line);
+                if (LAST.equalsIgnoreCase(baseline) || baseline.equals(run.getLabel())
+                        || baseline.equals(run.getTime()))
+                    found = run;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read the stored test runs from " + file + "!", e);
+        }
+        return found;
+    }
+
+    private static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ");
+    }
+
+    private static String hash(String query) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hash.append(String.format("%02x", digest[i]));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Cannot hash the query!", e);
+        }
+    }
+}
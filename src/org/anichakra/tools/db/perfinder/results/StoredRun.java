@@ -0,0 +1,133 @@
+package org.anichakra.tools.db.perfinder.results;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+
+/**
+ * The settings and the histograms of one test run, stored as one line of tab
+ * separated fields: the time, the label, the settings and the histograms.
+ */
+public class StoredRun {
+    public static final String TOTAL = "TOTAL";
+    private static final String ENCODING = "UTF-8";
+    private static final Pattern CREDENTIAL = Pattern
+            .compile("(?i)user|username|password|passwd|pwd|.*token|.*secret|api_?key|credentials?");
+
+    private final String time;
+    private final String label;
+    private final Map<String, String> settings;
+    private final Map<String, Histogram> histograms;
+
+    public StoredRun(String time, String label, Map<String, String> settings, Map<String, Histogram> histograms) {
+        this.time = time;
+        this.label = label == null ? "" : label;
+        this.settings = Collections.unmodifiableMap(new LinkedHashMap<>(settings));
+        this.histograms = Collections.unmodifiableMap(new LinkedHashMap<>(histograms));
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Map<String, String> getSettings() {
+        return settings;
+    }
+
+    public Map<String, Histogram> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * Removes the user info and the user, password, token, secret and key
+     * properties from a JDBC URL, as the stored runs are kept and shared.
+     */
+    public static String redactUrl(String url) {
+        if (url == null)
+            return null;
+        String redacted = url.replaceFirst("(?i)^(jdbc:oracle:[a-z0-9]+:)[^@]*@", "$1@")
+                .replaceFirst("//[^/@?;&]*@", "//");
+        StringBuilder result = new StringBuilder();
+        boolean queryStarted = false;
+        for (String part : redacted.split("(?=[?;&])")) {
+            char separator = part.charAt(0);
+            int equals = part.indexOf('=');
+            if (result.length() > 0 && (separator == '?' || separator == ';' || separator == '&') && equals > 0
+                    && CREDENTIAL.matcher(part.substring(1, equals).trim()).matches())
+                continue;
+            if (separator == '&' && !queryStarted && redacted.indexOf('?') >= 0)
+                part = '?' + part.substring(1);
+            queryStarted |= part.charAt(0) == '?';
+            result.append(part);
+        }
+        return result.toString();
+    }
+
+    public String getName() {
+        return time + (label.length() > 0 ? " [" + label + "]" : "");
+    }
+
+    String encode() {
+        StringBuilder line = new StringBuilder();
+        line.append(time).append('\t').append(escape(label)).append('\t');
+        append(line, settings, '&', StoredRun::escape);
+        line.append('\t');
+        append(line, histograms, ';', Histogram::encode);
+        return line.toString();
+    }
+
+    static StoredRun decode(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 4)
+            throw new IllegalArgumentException("Invalid stored run: " + line);
+        Map<String, String> settings = new LinkedHashMap<>();
+        for (String setting : fields[2].split("&")) {
+            int equals = setting.indexOf('=');
+            if (equals > 0)
+                settings.put(setting.substring(0, equals), unescape(setting.substring(equals + 1)));
+        }
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        for (String histogram : fields[3].split(";")) {
+            int equals = histogram.indexOf('=');
+            if (equals > 0)
+                histograms.put(histogram.substring(0, equals), Histogram.decode(histogram.substring(equals + 1)));
+        }
+        return new StoredRun(fields[0], unescape(fields[1]), settings, histograms);
+    }
+
+    private static <T> void append(StringBuilder line, Map<String, T> values, char separator,
+            Function<T, String> encoder) {
+        String prefix = "";
+        for (Map.Entry<String, T> value : values.entrySet()) {
+            line.append(prefix).append(value.getKey()).append('=').append(encoder.apply(value.getValue()));
+            prefix = String.valueOf(separator);
+        }
+    }
+
+    private static String escape(String value) {
+        try {
+            return URLEncoder.encode(value, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("Cannot encode " + value + "!", e);
+        }
+    }
+
+    private static String unescape(String value) {
+        try {
+            return URLDecoder.decode(value, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("Cannot decode " + value + "!", e);
+        }
+    }
+}
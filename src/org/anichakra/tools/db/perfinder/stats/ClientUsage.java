@@ -0,0 +1,114 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The client side cost of the timed executions: the bytes allocated and the
+ * CPU time of the executing thread, and the garbage collections that
+ * overlapped an execution along with the GC collection time as reported by
+ * the collector beans. A large share of client CPU time or many overlapped
+ * executions point to the client rather than to the database.
+ */
+public class ClientUsage {
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> GC_BEANS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    public static class Snapshot {
+        private final long time = System.nanoTime();
+        private final long allocatedBytes;
+        private final long cpuTime;
+        private long gcCount;
+        private long gcTime;
+
+        private Snapshot() {
+            allocatedBytes = getCurrentThreadAllocatedBytes();
+            cpuTime = THREAD_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_BEAN.isThreadCpuTimeEnabled()
+                    ? THREAD_BEAN.getCurrentThreadCpuTime()
+                    : -1;
+            for (GarbageCollectorMXBean gcBean : GC_BEANS) {
+                gcCount += Math.max(0, gcBean.getCollectionCount());
+                gcTime += Math.max(0, gcBean.getCollectionTime());
+            }
+        }
+
+        public static Snapshot take() {
+            return new Snapshot();
+        }
+
+        // -1 when the JVM does not count the allocations of the thread
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    private final Histogram allocations = new Histogram();
+    private final Histogram cpuTimes = new Histogram();
+    private final Histogram gcTimes = new Histogram();
+    private long executions;
+    private long cpuTime;
+    private long cpuElapsed;
+    private long gcExecutions;
+    private long gcCount;
+
+    private static long getCurrentThreadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    // records an execution between the snapshots and tells whether a garbage collection overlapped it
+    public synchronized boolean record(Snapshot start, Snapshot end) {
+        executions++;
+        if (start.allocatedBytes >= 0 && end.allocatedBytes >= 0)
+            allocations.record(end.allocatedBytes - start.allocatedBytes);
+        if (start.cpuTime >= 0 && end.cpuTime >= 0) {
+            cpuTimes.record(end.cpuTime - start.cpuTime);
+            cpuTime += end.cpuTime - start.cpuTime;
+            cpuElapsed += end.time - start.time;
+        }
+        if (end.gcCount == start.gcCount)
+            return false;
+        gcExecutions++;
+        gcCount += end.gcCount - start.gcCount;
+        gcTimes.record(TimeUnit.MILLISECONDS.toNanos(end.gcTime - start.gcTime));
+        return true;
+    }
+
+    public synchronized ClientUsage merge(ClientUsage other) {
+        synchronized (other) {
+            allocations.merge(other.allocations);
+            cpuTimes.merge(other.cpuTimes);
+            gcTimes.merge(other.gcTimes);
+            executions += other.executions;
+            cpuTime += other.cpuTime;
+            cpuElapsed += other.cpuElapsed;
+            gcExecutions += other.gcExecutions;
+            gcCount += other.gcCount;
+        }
+        return this;
+    }
+
+    public synchronized void report(Logger logger, String prefix) {
+        if (executions == 0)
+            return;
+        if (allocations.getCount() > 0)
+            logger.info(prefix + "Client Allocated (KB): " + allocations.summary(Histogram::kilobytes));
+        if (cpuTimes.getCount() > 0) {
+            logger.info(prefix + "Client CPU Times (ms): " + cpuTimes.summary());
+            logger.info(prefix + "Client CPU Share: "
+                    + BigDecimal.valueOf(100.0 * cpuTime / Math.max(1, cpuElapsed)).setScale(1, BigDecimal.ROUND_HALF_UP)
+                    + "% of the Execution Times");
+        }
+        logger.info(prefix + "Executions Overlapped by GC: " + gcExecutions + " of " + executions + ", Collections["
+                + gcCount + "]" + (gcExecutions == 0 ? "" : ", GC Times (ms): " + gcTimes.summary()));
+    }
+}
@@ -0,0 +1,103 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Decides how many test runs to make instead of a fixed count. The runs are
+ * warm-up until the median of the last {@link #WINDOW} runs is within
+ * {@link #DRIFT} of the median of the {@link #WINDOW} runs before, or until
+ * half of the time budget is spent. The runs after that are measured until
+ * the 95% confidence interval of the median, taken from the order statistics
+ * of the measured times, is within the target relative error or until the
+ * time budget is spent.
+ */
+public class Convergence {
+    private final static int WINDOW = 10;
+    private final static double DRIFT = 0.05;
+    private final static int MIN_MEASURED_COUNT = 30;
+    private final static double Z_95 = 1.96;
+    private final static double MIN_TARGET_ERROR = 0.01; // the precision of the histogram
+
+    private final double targetError;
+    private final long timeBudget;
+    private final long[] recent = new long[2 * WINDOW];
+    private final Histogram times = new Histogram();
+    private long start = -1;
+    private int warmUpCount;
+    private boolean warmedUp;
+    private boolean steady;
+    private double error = Double.NaN;
+
+    public Convergence(double targetError, long timeBudgetSeconds) {
+        if (!(targetError >= MIN_TARGET_ERROR))
+            throw new IllegalArgumentException("jdbc.targetError should be at least 1%!");
+        if (timeBudgetSeconds < 1)
+            throw new IllegalArgumentException("jdbc.timeBudget should be at least 1 second!");
+        this.targetError = targetError;
+        this.timeBudget = TimeUnit.SECONDS.toNanos(timeBudgetSeconds);
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    // records the time of a test run and tells whether more test runs are needed
+    public boolean record(long time) {
+        long now = System.nanoTime();
+        if (start < 0)
+            start = now - time;
+        long elapsed = now - start;
+        if (!warmedUp) {
+            recent[warmUpCount++ % recent.length] = time;
+            steady = warmUpCount >= recent.length && isSteady();
+            warmedUp = steady || elapsed >= timeBudget / 2;
+            return true;
+        }
+        times.record(time);
+        if (times.getCount() >= MIN_MEASURED_COUNT)
+            error = getMedianError();
+        return !(error <= targetError) && elapsed < timeBudget;
+    }
+
+    private boolean isSteady() {
+        long[] previous = new long[WINDOW];
+        long[] last = new long[WINDOW];
+        for (int i = 0; i < WINDOW; i++) {
+            previous[i] = recent[(warmUpCount + i) % recent.length];
+            last[i] = recent[(warmUpCount + WINDOW + i) % recent.length];
+        }
+        double previousMedian = median(previous);
+        return Math.abs(median(last) - previousMedian) <= DRIFT * previousMedian;
+    }
+
+    private static double median(long[] values) {
+        Arrays.sort(values);
+        return (values[values.length / 2 - 1] + values[values.length / 2]) / 2.0;
+    }
+
+    // half the width of the confidence interval of the median relative to the median
+    private double getMedianError() {
+        long count = times.getCount();
+        double halfWidth = Z_95 * Math.sqrt(count) / 2;
+        long lower = times.getValueAtPercentile(Math.max(1, Math.floor(count / 2.0 - halfWidth)) * 100 / count);
+        long upper = times.getValueAtPercentile(Math.min(count, Math.ceil(count / 2.0 + halfWidth + 1)) * 100 / count);
+        long median = times.getValueAtPercentile(50);
+        return median > 0 ? (upper - lower) / 2.0 / median : 0;
+    }
+
+    public void report(Logger logger) {
+        logger.info("Warm-up Runs: " + warmUpCount + (steady ? " until Steady State" : ", Steady State not detected")
+                + ", Measured Runs: " + times.getCount() + ", Median: "
+                + Histogram.millis(times.getValueAtPercentile(50)) + " ms +/- "
+                + (Double.isNaN(error) ? "n/a" : percent(error)) + " (95% CI, target +/- " + percent(targetError)
+                + ")" + (error <= targetError ? "" : ", Time Budget exhausted"));
+    }
+
+    private static String percent(double value) {
+        return BigDecimal.valueOf(100 * value).setScale(2, RoundingMode.HALF_UP) + "%";
+    }
+}
@@ -0,0 +1,181 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.DoubleFunction;
+
+/**
+ * Fixed-memory histogram of nanosecond values. Buckets are laid out on a log
+ * scale with 128 linear sub-buckets per power of two, so any recorded value is
+ * reported within 1% of its actual value, regardless of the number of samples.
+ * Histograms recorded by different threads can be merged.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HIGHEST_BIT_LENGTH = 44;
+    private static final long HIGHEST_TRACKABLE_VALUE = (1L << HIGHEST_BIT_LENGTH) - 1;
+    static final int BUCKET_COUNT = indexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private double sumOfSquare;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    static int indexOf(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1));
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    static long highestValueAt(int index) {
+        return lowestValueAt(index + 1) - 1;
+    }
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts[indexOf(Math.min(value, HIGHEST_TRACKABLE_VALUE))]++;
+        count++;
+        sum += value;
+        sumOfSquare += (double) value * value;
+        if (value < min)
+            min = value;
+        if (value > max)
+            max = value;
+    }
+
+    public Histogram merge(Histogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        sumOfSquare += other.sumOfSquare;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public Histogram copy() {
+        return new Histogram().merge(this);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        sumOfSquare = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public double getStandardDeviation() {
+        if (count < 2)
+            return 0;
+        double mean = getMean();
+        return Math.sqrt(Math.max(0, (sumOfSquare - count * mean * mean) / (count - 1)));
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank)
+                return i == BUCKET_COUNT - 1 ? max : Math.max(getMin(), Math.min(highestValueAt(i), max));
+        }
+        return max;
+    }
+
+    long getCountAt(int index) {
+        return counts[index];
+    }
+
+    // count/sum/sum of squares/min/max/index:count,... of the recorded buckets
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        encoded.append(count).append('/').append(sum).append('/').append(sumOfSquare).append('/').append(getMin())
+                .append('/').append(max).append('/');
+        String separator = "";
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] > 0) {
+                encoded.append(separator).append(i).append(':').append(counts[i]);
+                separator = ",";
+            }
+        }
+        return encoded.toString();
+    }
+
+    public static Histogram decode(String encoded) {
+        String[] fields = encoded.split("/", -1);
+        if (fields.length != 6)
+            throw new IllegalArgumentException("Invalid histogram: " + encoded);
+        Histogram histogram = new Histogram();
+        histogram.count = Long.parseLong(fields[0]);
+        histogram.sum = Long.parseLong(fields[1]);
+        histogram.sumOfSquare = Double.parseDouble(fields[2]);
+        histogram.min = histogram.count == 0 ? Long.MAX_VALUE : Long.parseLong(fields[3]);
+        histogram.max = Long.parseLong(fields[4]);
+        for (String bucket : fields[5].split(",")) {
+            if (bucket.length() == 0)
+                continue;
+            int colon = bucket.indexOf(':');
+            histogram.counts[Integer.parseInt(bucket.substring(0, colon))] = Long
+                    .parseLong(bucket.substring(colon + 1));
+        }
+        return histogram;
+    }
+
+    public String summary() {
+        return summary(Histogram::millis);
+    }
+
+    public String summary(DoubleFunction<BigDecimal> unit) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Count[").append(count).append("]");
+        if (count == 0)
+            return summary.toString();
+        summary.append(", Min[").append(unit.apply(getMin())).append("]");
+        for (double percentile : PERCENTILES) {
+            summary.append(", p").append(BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString()).append("[")
+                    .append(unit.apply(getValueAtPercentile(percentile))).append("]");
+        }
+        summary.append(", Max[").append(unit.apply(max)).append("]");
+        summary.append(", Avg[").append(unit.apply(getMean())).append("]");
+        summary.append(", Stdiv[").append(unit.apply(getStandardDeviation())).append("]");
+        return summary.toString();
+    }
+
+    public static BigDecimal millis(double nanos) {
+        return new BigDecimal(nanos / 1e6).setScale(3, BigDecimal.ROUND_HALF_UP);
+    }
+
+    public static BigDecimal kilobytes(double bytes) {
+        return new BigDecimal(bytes / 1024).setScale(1, BigDecimal.ROUND_HALF_UP);
+    }
+}
@@ -0,0 +1,57 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+/**
+ * Mann-Whitney U test of whether the values of a sample tend to be greater
+ * than the values of a baseline, computed from the buckets of their
+ * histograms. The values sharing a bucket are taken as ties, and the normal
+ * approximation with the tie correction is used for the p-value, which is
+ * accurate for the sample sizes of the test runs.
+ */
+public class MannWhitney {
+    private final double probabilityGreater;
+    private final double z;
+
+    public MannWhitney(Histogram sample, Histogram baseline) {
+        double n1 = sample.getCount();
+        double n2 = baseline.getCount();
+        if (n1 == 0 || n2 == 0)
+            throw new IllegalArgumentException("Cannot compare an empty histogram!");
+        double u = 0;
+        double baselineBelow = 0;
+        double ties = 0;
+        for (int i = 0; i < Histogram.BUCKET_COUNT; i++) {
+            long a = sample.getCountAt(i);
+            long b = baseline.getCountAt(i);
+            u += a * (baselineBelow + b / 2.0);
+            baselineBelow += b;
+            double t = a + b;
+            ties += t * t * t - t;
+        }
+        double n = n1 + n2;
+        double variance = n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1)));
+        probabilityGreater = u / (n1 * n2);
+        z = variance > 0 ? (u - n1 * n2 / 2) / Math.sqrt(variance) : 0;
+    }
+
+    // the probability that a value of the sample is greater than a value of the baseline, ties counted half
+    public double getProbabilityGreater() {
+        return probabilityGreater;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    // one-sided, for the sample being greater than the baseline
+    public double getPValue() {
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    // Abramowitz and Stegun 7.1.26, within 1.5e-7
+    private static double erfc(double x) {
+        double t = 1 / (1 + 0.3275911 * Math.abs(x));
+        double y = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-x * x);
+        return x >= 0 ? y : 2 - y;
+    }
+}
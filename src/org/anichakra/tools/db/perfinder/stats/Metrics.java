@@ -0,0 +1,61 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public class Metrics {
+
+    public enum Phase {
+        CONNECT("Connect"), PREPARE("Prepare"), BIND("Bind"), EXECUTE("Query"), FIRST_ROW("First Row"), FETCH(
+                "Fetch"), ROW("Per Row Fetch"), BATCH("Batch"), COMMIT("Commit");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Map<Phase, Histogram> histograms = new EnumMap<>(Phase.class);
+
+    public synchronized void record(Phase phase, long nanos) {
+        histograms.computeIfAbsent(phase, p -> new Histogram()).record(nanos);
+    }
+
+    public synchronized void merge(Phase phase, Histogram histogram) {
+        histograms.computeIfAbsent(phase, p -> new Histogram()).merge(histogram);
+    }
+
+    public synchronized Histogram get(Phase phase) {
+        Histogram histogram = histograms.get(phase);
+        return histogram == null ? new Histogram() : histogram.copy();
+    }
+
+    public Metrics merge(Metrics other) {
+        Map<Phase, Histogram> snapshot = new EnumMap<>(Phase.class);
+        other.forEach(snapshot::put);
+        synchronized (this) {
+            snapshot.forEach((phase, histogram) -> histograms.computeIfAbsent(phase, p -> new Histogram())
+                    .merge(histogram));
+        }
+        return this;
+    }
+
+    public synchronized void reset() {
+        histograms.clear();
+    }
+
+    // visits a copy of each recorded phase in the order of the phases
+    public void forEach(BiConsumer<Phase, Histogram> action) {
+        Map<Phase, Histogram> snapshot = new EnumMap<>(Phase.class);
+        synchronized (this) {
+            histograms.forEach((phase, histogram) -> snapshot.put(phase, histogram.copy()));
+        }
+        snapshot.forEach(action);
+    }
+}
@@ -0,0 +1,218 @@
+package org.anichakra.tools.db.perfinder.sweep;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.rdbms.FetchMode;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterBinder;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
+import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.RowConsumer;
+import org.anichakra.tools.db.perfinder.rdbms.TableRenderer;
+import org.anichakra.tools.db.perfinder.stats.ClientUsage;
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+import org.anichakra.tools.db.perfinder.stats.Metrics.Phase;
+
+/**
+ * Runs the same query over each combination of fetch size and max rows, and
+ * recommends a fetch size for each max rows window, as the windows return
+ * different rows. The throughput is end-to-end, the rows per second of the
+ * execution and the fetch together, as drivers may fetch the first rows while
+ * executing. Among the fetch sizes within {@link #TOLERANCE} of the best
+ * throughput of a window, the smallest is recommended as it holds the least
+ * rows in the client.
+ */
+public class SweepRunner {
+    private final static double TOLERANCE = 0.05;
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+
+    static class Point {
+        private final Integer fetchSize;
+        private final Integer maxRows;
+        private final Histogram times = new Histogram();
+        private Metrics metrics;
+        private long rows;
+        private long allocatedBytes = -1;
+
+        Point(Integer fetchSize, Integer maxRows) {
+            this.fetchSize = fetchSize;
+            this.maxRows = maxRows;
+        }
+
+        // the rows per second of the execution and the fetch together
+        double getThroughput() {
+            double seconds = times.getMean() * times.getCount() / 1e9;
+            return seconds > 0 ? rows / seconds : 0;
+        }
+    }
+
+    private final RdbmsPerfinder rdbmsPf;
+    private final int runCount;
+    private FetchMode fetchMode = FetchMode.MATERIALIZE;
+    private ParameterSource parameterSource;
+    private ParameterBinder binder;
+
+    public SweepRunner(RdbmsPerfinder rdbmsPf, int runCount) {
+        this.rdbmsPf = rdbmsPf;
+        this.runCount = runCount;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    public void setParameterSource(ParameterSource parameterSource, ParameterBinder binder) {
+        this.parameterSource = parameterSource;
+        this.binder = binder;
+    }
+
+    /**
+     * Parses a comma separated list of values and ranges. A range is written
+     * as from..to+step for a linear or from..to*factor for a geometric series,
+     * e.g. 10..10000*10 gives 10, 100, 1000 and 10000.
+     */
+    public static List<Integer> parseValues(String property) {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (String token : property.split(",")) {
+            token = token.trim();
+            if (token.length() == 0)
+                continue;
+            int range = token.indexOf("..");
+            if (range < 0) {
+                values.add(Integer.valueOf(token));
+                continue;
+            }
+            int from = Integer.parseInt(token.substring(0, range).trim());
+            String rest = token.substring(range + 2);
+            int stepIndex = Math.max(rest.indexOf('+'), rest.indexOf('*'));
+            if (stepIndex < 0)
+                throw new IllegalArgumentException("Missing +step or *factor in range: " + token);
+            int to = Integer.parseInt(rest.substring(0, stepIndex).trim());
+            int step = Integer.parseInt(rest.substring(stepIndex + 1).trim());
+            boolean geometric = rest.charAt(stepIndex) == '*';
+            if (from <= 0 || to < from || step <= (geometric ? 1 : 0))
+                throw new IllegalArgumentException("Invalid range: " + token);
+            for (long value = from; value <= to; value = geometric ? value * step : value + step) {
+                values.add((int) value);
+            }
+        }
+        if (values.isEmpty())
+            throw new IllegalArgumentException("No values to sweep in: " + property);
+        return new ArrayList<>(values);
+    }
+
+    public void run(String query, List<Integer> fetchSizes, Integer rowIndex, List<Integer> maxRows,
+            String[] parameters) throws Exception {
+        List<Point> points = new ArrayList<>();
+        for (Integer max : maxRows) {
+            for (Integer fetchSize : fetchSizes) {
+                points.add(new Point(fetchSize, max));
+            }
+        }
+        LOGGER.info("Sweeping " + points.size() + " Settings with " + runCount + " Test Runs each...");
+        RowConsumer consumer = fetchMode.newConsumer();
+        Metrics original = rdbmsPf.getMetrics();
+        try {
+            for (Point point : points) {
+                run(point, query, rowIndex, parameters, consumer);
+                LOGGER.fine(() -> "Swept jdbc.fetchSize=" + point.fetchSize + ", jdbc.maxRows=" + point.maxRows);
+            }
+        } finally {
+            rdbmsPf.setMetrics(original);
+        }
+        report(points);
+    }
+
+    private void run(Point point, String query, Integer rowIndex, String[] parameters, RowConsumer consumer)
+            throws Exception {
+        Integer maxRows = point.maxRows == null ? null : (rowIndex == null ? 0 : rowIndex) + point.maxRows;
+        rdbmsPf.prepareStatement(query, point.fetchSize, maxRows, parameters);
+        execute(rowIndex, consumer); // warm up
+        point.metrics = new Metrics();
+        rdbmsPf.setMetrics(point.metrics);
+        long allocatedBefore = ClientUsage.Snapshot.take().getAllocatedBytes();
+        for (int i = 0; i < runCount; i++) {
+            long start = System.nanoTime();
+            point.rows += execute(rowIndex, consumer);
+            point.times.record(System.nanoTime() - start);
+        }
+        long allocatedAfter = ClientUsage.Snapshot.take().getAllocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0)
+            point.allocatedBytes = (allocatedAfter - allocatedBefore) / runCount;
+    }
+
+    private long execute(Integer rowIndex, RowConsumer consumer) {
+        if (parameterSource != null)
+            rdbmsPf.bindParameters(binder, parameterSource.next());
+        rdbmsPf.executeQuery();
+        return rdbmsPf.fetchResult(rowIndex, consumer);
+    }
+
+    private void report(List<Point> points) {
+        Map<Integer, List<Point>> windows = new LinkedHashMap<>();
+        for (Point point : points) {
+            windows.computeIfAbsent(point.maxRows, maxRows -> new ArrayList<>()).add(point);
+        }
+        String[] headers = { "Fetch Size", "Max Rows", "Rows/Exec", "Rows/s", "Query p50", "Fetch p50",
+                "Total p50", "Total p99", "Alloc/Exec (KB)" };
+        List<String[]> rows = new ArrayList<>();
+        for (Point point : points) {
+            rows.add(new String[] { toString(point.fetchSize), toString(point.maxRows),
+                    String.valueOf(point.rows / runCount), scale(point.getThroughput(), 1).toPlainString(),
+                    millis(point.metrics.get(Phase.EXECUTE)), millis(point.metrics.get(Phase.FETCH)),
+                    millis(point.times), Histogram.millis(point.times.getValueAtPercentile(99)).toPlainString(),
+                    point.allocatedBytes < 0 ? "n/a" : scale(point.allocatedBytes / 1024d, 1).toPlainString() });
+        }
+        StringWriter table = new StringWriter();
+        new TableRenderer(table, Long.MAX_VALUE, Integer.MAX_VALUE).render(headers, rows);
+        LOGGER.info("Sweep Result (times in ms, Rows/s of execution and fetch)..." + System.lineSeparator() + table);
+        for (List<Point> window : windows.values()) {
+            Point recommended = recommend(window);
+            LOGGER.info("Recommended Setting for jdbc.maxRows=" + toString(recommended.maxRows) + ": jdbc.fetchSize="
+                    + toString(recommended.fetchSize) + " at " + scale(recommended.getThroughput(), 1) + " rows/s");
+        }
+    }
+
+    // the smallest fetch size within the tolerance of the best throughput
+    private static Point recommend(List<Point> points) {
+        Point best = null;
+        for (Point point : points) {
+            if (best == null || point.getThroughput() > best.getThroughput())
+                best = point;
+        }
+        Point recommended = best;
+        for (Point point : points) {
+            if (point.getThroughput() >= best.getThroughput() * (1 - TOLERANCE)
+                    && compare(point.fetchSize, recommended.fetchSize) < 0)
+                recommended = point;
+        }
+        return recommended;
+    }
+
+    // a null setting means the driver default, which sorts last
+    private static int compare(Integer a, Integer b) {
+        if (a == null)
+            return b == null ? 0 : 1;
+        return b == null ? -1 : a.compareTo(b);
+    }
+
+    private static String toString(Integer setting) {
+        return setting == null ? "default" : setting.toString();
+    }
+
+    private static String millis(Histogram histogram) {
+        return Histogram.millis(histogram.getValueAtPercentile(50)).toPlainString();
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
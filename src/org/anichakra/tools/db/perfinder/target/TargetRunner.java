@@ -0,0 +1,220 @@
+package org.anichakra.tools.db.perfinder.target;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.rdbms.FetchMode;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterBinder;
+import org.anichakra.tools.db.perfinder.rdbms.ParameterSource;
+import org.anichakra.tools.db.perfinder.rdbms.RdbmsPerfinder;
+import org.anichakra.tools.db.perfinder.rdbms.RowConsumer;
+import org.anichakra.tools.db.perfinder.rdbms.TableRenderer;
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.anichakra.tools.db.perfinder.stats.MannWhitney;
+import org.anichakra.tools.db.perfinder.stats.Metrics;
+import org.anichakra.tools.db.perfinder.stats.Metrics.Phase;
+
+/**
+ * Runs the same query against several named targets, each with its own
+ * driver class loader and connection, and reports them side by side with the
+ * first target as the reference. The targets take turns for each test run
+ * when interleaved, so a drift of the environment affects all of them alike,
+ * or run at the same time on a thread each when in parallel.
+ */
+public class TargetRunner {
+    private final static Logger LOGGER = Logger.getLogger("db-perfinder");
+
+    public static class Target {
+        private final String name;
+        private final String driver;
+        private final String jarPath;
+        private final String url;
+        private final String username;
+        private final String password;
+        private final Metrics metrics = new Metrics();
+        private final Histogram times = new Histogram();
+        private RdbmsPerfinder rdbmsPf;
+        private ParameterSource parameterSource;
+        private String driverVersion;
+        private long rows;
+
+        public Target(String name, String driver, String jarPath, String url, String username, String password) {
+            if (url == null || url.trim().length() == 0)
+                throw new IllegalArgumentException("url is not provided for target " + name + "!");
+            this.name = name;
+            this.driver = driver;
+            this.jarPath = jarPath;
+            this.url = url;
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    private final List<Target> targets;
+    private final int runCount;
+    private final boolean parallel;
+    private FetchMode fetchMode = FetchMode.MATERIALIZE;
+    private Supplier<ParameterSource> parameterSources;
+    private ParameterBinder binder;
+
+    public TargetRunner(List<Target> targets, int runCount, boolean parallel) {
+        if (targets.size() < 2)
+            throw new IllegalArgumentException("jdbc.targets should name at least 2 targets!");
+        this.targets = targets;
+        this.runCount = runCount;
+        this.parallel = parallel;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    // each target binds the same sequence of parameters from a source of its own
+    public void setParameterSource(Supplier<ParameterSource> parameterSources, ParameterBinder binder) {
+        this.parameterSources = parameterSources;
+        this.binder = binder;
+    }
+
+    public void run(String query, Integer fetchSize, Integer rowIndex, Integer maxRows, String[] parameters)
+            throws Exception {
+        try {
+            for (Target target : targets) {
+                open(target, query, fetchSize, rowIndex, maxRows, parameters);
+            }
+            LOGGER.info("Executing Tests on " + targets.size() + " Targets " + (parallel ? "in parallel" : "interleaved")
+                    + "...");
+            if (parallel)
+                runParallel(rowIndex);
+            else {
+                RowConsumer consumer = fetchMode.newConsumer();
+                for (int i = 0; i < runCount; i++) {
+                    for (Target target : targets) {
+                        execute(target, rowIndex, consumer);
+                    }
+                }
+            }
+        } finally {
+            for (Target target : targets) {
+                close(target);
+            }
+        }
+        report();
+    }
+
+    private void open(Target target, String query, Integer fetchSize, Integer rowIndex, Integer maxRows,
+            String[] parameters) {
+        target.rdbmsPf = new RdbmsPerfinder();
+        target.rdbmsPf.loadDriver(target.driver, target.jarPath);
+        target.rdbmsPf.createConnection(target.url, target.username, target.password);
+        target.driverVersion = target.rdbmsPf.getDriverVersion();
+        target.rdbmsPf.setForwardOnly(fetchMode.isForwardOnly());
+        Integer lastRow = maxRows == null ? null : (rowIndex == null ? 0 : rowIndex) + maxRows;
+        target.rdbmsPf.prepareStatement(query, fetchSize, lastRow, parameters);
+        Metrics setup = target.rdbmsPf.getMetrics();
+        LOGGER.info("Target " + target.name + ": " + target.url + ", Driver[" + target.driverVersion
+                + "], Connect Time (ms): " + Histogram.millis(setup.get(Phase.CONNECT).getMax())
+                + ", Prepare Time (ms): " + Histogram.millis(setup.get(Phase.PREPARE).getMax()));
+        target.parameterSource = parameterSources == null ? null : parameterSources.get();
+        if (target.parameterSource != null)
+            target.rdbmsPf.bindParameters(binder, target.parameterSource.next());
+        target.rdbmsPf.executeQuery(); // warm up
+        target.rdbmsPf.fetchResult(rowIndex, RowConsumer.discarding());
+        target.rdbmsPf.setMetrics(target.metrics);
+    }
+
+    private void runParallel(Integer rowIndex) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(targets.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Target target : targets) {
+                futures.add(executor.submit(() -> {
+                    RowConsumer consumer = fetchMode.newConsumer();
+                    start.await();
+                    for (int i = 0; i < runCount; i++) {
+                        execute(target, rowIndex, consumer);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Test Run failed on a Target!", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void execute(Target target, Integer rowIndex, RowConsumer consumer) {
+        if (target.parameterSource != null)
+            target.rdbmsPf.bindParameters(binder, target.parameterSource.next());
+        long start = System.nanoTime();
+        target.rdbmsPf.executeQuery();
+        target.rows += target.rdbmsPf.fetchResult(rowIndex, consumer);
+        target.times.record(System.nanoTime() - start);
+    }
+
+    private void close(Target target) {
+        try {
+            if (target.parameterSource != null)
+                target.parameterSource.close();
+            if (target.rdbmsPf != null)
+                target.rdbmsPf.close();
+        } catch (Exception e) {
+            // nothing can be done
+        }
+    }
+
+    private void report() {
+        LOGGER.info("Test Result...");
+        for (Target target : targets) {
+            target.metrics.forEach((phase, histogram) -> LOGGER
+                    .info("Target " + target.name + " " + phase.getLabel() + " Times (ms): " + histogram.summary()));
+            LOGGER.info("Target " + target.name + " Total Times (ms): " + target.times.summary());
+        }
+        Target reference = targets.get(0);
+        String[] headers = { "Target", "Driver", "Rows/Exec", "Query p50", "Query p99", "Fetch p50", "Total p50",
+                "Total p99", "p50 vs " + reference.name, "P(slower)" };
+        List<String[]> rows = new ArrayList<>();
+        for (Target target : targets) {
+            long p50 = target.times.getValueAtPercentile(50);
+            long referenceP50 = Math.max(1, reference.times.getValueAtPercentile(50));
+            rows.add(new String[] { target.name, target.driverVersion, String.valueOf(target.rows / runCount),
+                    millis(target.metrics.get(Phase.EXECUTE), 50), millis(target.metrics.get(Phase.EXECUTE), 99),
+                    millis(target.metrics.get(Phase.FETCH), 50), millis(target.times, 50), millis(target.times, 99),
+                    target == reference ? "-"
+                            : (p50 >= referenceP50 ? "+" : "")
+                                    + scale(100.0 * (p50 - referenceP50) / referenceP50, 1).toPlainString() + "%",
+                    target == reference ? "-"
+                            : scale(new MannWhitney(target.times, reference.times).getProbabilityGreater(), 3)
+                                    .toPlainString() });
+        }
+        StringWriter table = new StringWriter();
+        new TableRenderer(table, Long.MAX_VALUE, Integer.MAX_VALUE).render(headers, rows);
+        LOGGER.info("Target Comparison (times in ms)..." + System.lineSeparator() + table);
+    }
+
+    private static String millis(Histogram histogram, double percentile) {
+        return histogram.getCount() == 0 ? "-"
+                : Histogram.millis(histogram.getValueAtPercentile(percentile)).toPlainString();
+    }
+
+    private static BigDecimal scale(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,45 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CsvParameterSourceTest {
+
+    @Test
+    public void parseFields() {
+        assertArrayEquals(new String[] { "1", "a b", "2.5" }, CsvParameterSource.parse("1, a b ,2.5"));
+    }
+
+    @Test
+    public void parseQuotedFields() {
+        assertArrayEquals(new String[] { "a,b", "say \"hi\"", " padded " },
+                CsvParameterSource.parse("\"a,b\",\"say \"\"hi\"\"\",\" padded \""));
+    }
+
+    @Test
+    public void parseEmptyFieldsAsNull() {
+        assertArrayEquals(new String[] { null, "", null }, CsvParameterSource.parse(",\"\","));
+    }
+
+    @Test
+    public void cyclesThroughTheFile() throws IOException {
+        Path file = Files.createTempFile("parameters", ".csv");
+        try {
+            Files.write(file, Arrays.asList("# id,name", "1,a", "", "2,b"), StandardCharsets.UTF_8);
+            try (CsvParameterSource source = new CsvParameterSource(file, false)) {
+                assertArrayEquals(new String[] { "1", "a" }, source.next());
+                assertArrayEquals(new String[] { "2", "b" }, source.next());
+                assertArrayEquals(new String[] { "1", "a" }, source.next());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
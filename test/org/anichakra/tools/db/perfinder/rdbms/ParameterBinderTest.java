@@ -0,0 +1,39 @@
+package org.anichakra.tools.db.perfinder.rdbms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ParameterBinderTest {
+
+    @Test
+    public void splitTypes() {
+        String[][] split = ParameterBinder.split(new String[] { "100:int", "BMW", "121.12:DOUBLE" });
+        assertArrayEquals(new String[] { "100", "BMW", "121.12" }, split[0]);
+        assertArrayEquals(new String[] { "int", "string", "DOUBLE" }, split[1]);
+    }
+
+    @Test
+    public void splitKeepsTimesInTheValue() {
+        String[][] split = ParameterBinder.split(new String[] { "2024-01-01 10:00:00:timestamp", "10:30:00",
+                "2024-01-01 10:00:00" });
+        assertArrayEquals(new String[] { "2024-01-01 10:00:00", "10:30:00", "2024-01-01 10:00:00" }, split[0]);
+        assertArrayEquals(new String[] { "timestamp", "string", "string" }, split[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void splitUnknownType() {
+        ParameterBinder.split(new String[] { "5:integr" });
+    }
+
+    @Test
+    public void compileDefaultsToString() {
+        assertEquals(3, ParameterBinder.compile("int", null, " ").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compileUnknownType() {
+        ParameterBinder.compile("datetime");
+    }
+}
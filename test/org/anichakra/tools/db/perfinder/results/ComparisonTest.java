@@ -0,0 +1,48 @@
+package org.anichakra.tools.db.perfinder.results;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.junit.Test;
+
+public class ComparisonTest {
+    private static final Logger LOGGER = Logger.getAnonymousLogger();
+    static {
+        LOGGER.setLevel(Level.OFF);
+    }
+
+    // 100 total times spread evenly from the median - 10% to the median + 10%
+    private static StoredRun run(long median) {
+        Histogram total = new Histogram();
+        for (int i = 0; i < 100; i++) {
+            total.record(median - median / 10 + i * median / 500);
+        }
+        return new StoredRun("2026-01-01T00:00:00Z", "", Collections.emptyMap(),
+                Collections.singletonMap(StoredRun.TOTAL, total));
+    }
+
+    @Test
+    public void slowerBeyondThresholdIsRegression() {
+        assertTrue(new Comparison(run(1000000), run(1300000), 0.1).report(LOGGER));
+    }
+
+    @Test
+    public void slowerWithinThresholdIsNoRegression() {
+        assertFalse(new Comparison(run(1000000), run(1050000), 0.1).report(LOGGER));
+    }
+
+    @Test
+    public void fasterIsNoRegression() {
+        assertFalse(new Comparison(run(1300000), run(1000000), 0.1).report(LOGGER));
+    }
+
+    @Test
+    public void sameTimesAreNoRegression() {
+        assertFalse(new Comparison(run(1000000), run(1000000), 0).report(LOGGER));
+    }
+}
@@ -0,0 +1,56 @@
+package org.anichakra.tools.db.perfinder.results;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.anichakra.tools.db.perfinder.stats.Histogram;
+import org.junit.Test;
+
+public class StoredRunTest {
+
+    @Test
+    public void encodeAndDecode() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("jdbc.url", "jdbc:h2:mem:test;MODE=Oracle");
+        settings.put("jdbc.parameters", "5:int,a b&c=d\tx");
+        settings.put("jdbc.fetchSize", "null");
+        Histogram total = new Histogram();
+        for (long value = 1000; value < 1000000; value += 997) {
+            total.record(value);
+        }
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        histograms.put(StoredRun.TOTAL, total);
+        histograms.put("FETCH", new Histogram());
+        StoredRun run = new StoredRun("2026-01-01T00:00:00Z", "release 1.2; rc", settings, histograms);
+
+        StoredRun decoded = StoredRun.decode(run.encode());
+
+        assertEquals(run.getTime(), decoded.getTime());
+        assertEquals(run.getLabel(), decoded.getLabel());
+        assertEquals(settings, decoded.getSettings());
+        assertEquals(histograms.keySet(), decoded.getHistograms().keySet());
+        assertEquals(total.encode(), decoded.getHistograms().get(StoredRun.TOTAL).encode());
+        assertEquals(0, decoded.getHistograms().get("FETCH").getCount());
+        assertEquals(run.encode(), decoded.encode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeInvalidLine() {
+        StoredRun.decode("2026-01-01T00:00:00Z\tlabel");
+    }
+
+    @Test
+    public void redactUrl() {
+        assertEquals("jdbc:postgresql://db:5432/app?ssl=true",
+                StoredRun.redactUrl("jdbc:postgresql://bob:secret@db:5432/app?user=bob&password=x&ssl=true"));
+        assertEquals("jdbc:postgresql://db/app?ssl=true",
+                StoredRun.redactUrl("jdbc:postgresql://db/app?password=x&ssl=true&sessionToken=q"));
+        assertEquals("jdbc:sqlserver://db:1433;databaseName=app;encrypt=true",
+                StoredRun.redactUrl("jdbc:sqlserver://db:1433;databaseName=app;user=sa;password=p;encrypt=true"));
+        assertEquals("jdbc:oracle:thin:@//db:1521/orcl",
+                StoredRun.redactUrl("jdbc:oracle:thin:scott/tiger@//db:1521/orcl"));
+        assertEquals("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1", StoredRun.redactUrl("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1"));
+    }
+}
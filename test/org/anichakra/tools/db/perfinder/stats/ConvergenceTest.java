@@ -0,0 +1,45 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ConvergenceTest {
+
+    @Test
+    public void steadyTimesConverge() {
+        Convergence convergence = new Convergence(0.05, 60);
+        Random random = new Random(11);
+        int runs = 0;
+        while (convergence.record(1000000 + random.nextInt(20000)))
+            runs++;
+        assertTrue(convergence.isWarmedUp());
+        // 20 warm-up runs until steady and at least 30 measured runs
+        assertEquals(49, runs);
+    }
+
+    @Test
+    public void driftingTimesStayInWarmUp() {
+        Convergence convergence = new Convergence(0.05, 60);
+        long time = 1000000;
+        for (int i = 0; i < 100; i++) {
+            assertTrue(convergence.record(time));
+            time += time / 10;
+        }
+        assertFalse(convergence.isWarmedUp());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetBelowHistogramPrecision() {
+        new Convergence(0.005, 60);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noTimeBudget() {
+        new Convergence(0.05, 0);
+    }
+}
@@ -0,0 +1,116 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < 256; value++) {
+            int index = Histogram.indexOf(value);
+            assertEquals(value, Histogram.lowestValueAt(index));
+            assertEquals(value, Histogram.highestValueAt(index));
+        }
+    }
+
+    @Test
+    public void bucketsAreWithinOnePercent() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = (long) Math.pow(2, 8 + random.nextDouble() * 35);
+            int index = Histogram.indexOf(value);
+            long lowest = Histogram.lowestValueAt(index);
+            long highest = Histogram.highestValueAt(index);
+            assertTrue(value + " in [" + lowest + ", " + highest + "]", lowest <= value && value <= highest);
+            assertTrue(value + " bucket too wide", highest - lowest <= value / 100);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        Histogram histogram = new Histogram();
+        long[] values = new long[10000];
+        Random random = new Random(7);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + random.nextInt(10000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue("p" + percentile + ": " + actual + " vs " + expected,
+                    Math.abs(actual - expected) <= expected / 100);
+        }
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void meanAndStandardDeviation() {
+        Histogram histogram = new Histogram();
+        for (long value : new long[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+            histogram.record(value);
+        }
+        assertEquals(5.0, histogram.getMean(), 1e-9);
+        assertEquals(Math.sqrt(32.0 / 7), histogram.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void emptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, Histogram.decode(histogram.encode()).getCount());
+    }
+
+    @Test
+    public void encodeAndDecode() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            histogram.record((long) Math.pow(10, 3 + random.nextDouble() * 6));
+        }
+        Histogram decoded = Histogram.decode(histogram.encode());
+        assertEquals(histogram.encode(), decoded.encode());
+        assertEquals(histogram.getCount(), decoded.getCount());
+        assertEquals(histogram.getMin(), decoded.getMin());
+        assertEquals(histogram.getMax(), decoded.getMax());
+        assertEquals(histogram.getMean(), decoded.getMean(), 1e-9);
+        assertEquals(histogram.getStandardDeviation(), decoded.getStandardDeviation(), 1e-9);
+        for (double percentile : new double[] { 50, 90, 99, 99.9 }) {
+            assertEquals(histogram.getValueAtPercentile(percentile), decoded.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeInvalid() {
+        Histogram.decode("1/2/3");
+    }
+
+    @Test
+    public void mergeAndReset() {
+        Histogram low = new Histogram();
+        Histogram high = new Histogram();
+        for (long value = 1; value <= 100; value++) {
+            low.record(value);
+            high.record(value + 100);
+        }
+        Histogram merged = new Histogram().merge(low).merge(high);
+        assertEquals(200, merged.getCount());
+        assertEquals(1, merged.getMin());
+        assertEquals(200, merged.getMax());
+        assertEquals(100, merged.getValueAtPercentile(50));
+        merged.reset();
+        assertEquals(0, merged.getCount());
+        assertEquals(0, merged.getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,66 @@
+package org.anichakra.tools.db.perfinder.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * The expected values are those of the normal approximation with the tie
+ * correction and no continuity correction, as computed by hand.
+ */
+public class MannWhitneyTest {
+    private static final double DELTA = 1e-6;
+
+    private static Histogram histogram(long... values) {
+        Histogram histogram = new Histogram();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        return histogram;
+    }
+
+    @Test
+    public void sampleAboveBaseline() {
+        MannWhitney test = new MannWhitney(histogram(6, 7, 8, 9, 10), histogram(1, 2, 3, 4, 5));
+        assertEquals(1.0, test.getProbabilityGreater(), DELTA);
+        assertEquals(2.6111648, test.getZ(), DELTA);
+        assertEquals(0.0045117, test.getPValue(), DELTA);
+    }
+
+    @Test
+    public void sampleBelowBaseline() {
+        MannWhitney test = new MannWhitney(histogram(1, 2, 3, 4, 5), histogram(6, 7, 8, 9, 10));
+        assertEquals(0.0, test.getProbabilityGreater(), DELTA);
+        assertEquals(-2.6111648, test.getZ(), DELTA);
+        assertEquals(0.9954883, test.getPValue(), DELTA);
+    }
+
+    @Test
+    public void interleavedSamples() {
+        MannWhitney test = new MannWhitney(histogram(3, 5, 7, 9, 11, 13), histogram(2, 4, 6, 8, 10, 12));
+        assertEquals(21.0 / 36, test.getProbabilityGreater(), DELTA);
+        assertEquals(0.4803845, test.getZ(), DELTA);
+        assertEquals(0.3154770, test.getPValue(), DELTA);
+    }
+
+    @Test
+    public void tiesCountHalf() {
+        MannWhitney test = new MannWhitney(histogram(1, 2, 2, 3), histogram(1, 1, 2));
+        assertEquals(0.75, test.getProbabilityGreater(), DELTA);
+        assertEquals(1.1456439, test.getZ(), DELTA);
+        assertEquals(0.1259713, test.getPValue(), DELTA);
+    }
+
+    @Test
+    public void identicalSamples() {
+        MannWhitney test = new MannWhitney(histogram(5, 5, 5), histogram(5, 5, 5));
+        assertEquals(0.5, test.getProbabilityGreater(), DELTA);
+        assertEquals(0.0, test.getZ(), DELTA);
+        assertEquals(0.5, test.getPValue(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyHistogram() {
+        new MannWhitney(new Histogram(), histogram(1));
+    }
+}
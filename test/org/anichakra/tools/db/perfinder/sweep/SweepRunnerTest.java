@@ -0,0 +1,46 @@
+package org.anichakra.tools.db.perfinder.sweep;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SweepRunnerTest {
+
+    @Test
+    public void values() {
+        assertEquals(Arrays.asList(10, 50, 100), SweepRunner.parseValues("100, 10,50,,10"));
+    }
+
+    @Test
+    public void geometricRange() {
+        assertEquals(Arrays.asList(10, 100, 1000, 10000), SweepRunner.parseValues("10..10000*10"));
+        assertEquals(Arrays.asList(1, 2, 4, 8), SweepRunner.parseValues("1..10*2"));
+    }
+
+    @Test
+    public void linearRangeAndValues() {
+        assertEquals(Arrays.asList(100, 250, 300, 500, 700, 900), SweepRunner.parseValues("100..1000+200,250,300"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeWithoutStep() {
+        SweepRunner.parseValues("10..100");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeWithUnitFactor() {
+        SweepRunner.parseValues("10..100*1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void descendingRange() {
+        SweepRunner.parseValues("100..10+10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noValues() {
+        SweepRunner.parseValues(" , ");
+    }
+}